@@ -0,0 +1,89 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.CommandException;
+import grapefruit.command.CommandModule;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
+import grapefruit.command.dispatcher.config.DispatcherConfig;
+import grapefruit.command.dispatcher.input.CommandInputTokenizer;
+import grapefruit.command.dispatcher.input.MissingInputException;
+import grapefruit.command.util.key.Key;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.greedy;
+
+/*
+ * Regression benchmark for large inputs. The time per operation should grow
+ * linearly with the input size, that is, each 16x increase of the input
+ * should result in a roughly 16x increase of the time per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GreedyDispatchBenchmark {
+    private static final Key<String> MESSAGE_KEY = Key.named(String.class, "message");
+    @Param({ "4096", "65536", "1048576" })
+    private int inputSize;
+    private CommandDispatcher<Object> dispatcher;
+    private String input;
+
+    @Setup
+    public void setup() {
+        this.dispatcher = CommandDispatcher.using(DispatcherConfig.builder().build());
+        this.dispatcher.register(new EchoCommand());
+        // Lots of short words, so that the number of tokens grows with the input as well
+        final String words = "word ".repeat(this.inputSize / 5);
+        this.input = "echo " + words;
+    }
+
+    @Benchmark
+    public Object dispatchGreedy() throws CommandException {
+        final Object source = new Object();
+        this.dispatcher.dispatch(source, this.input);
+        return source;
+    }
+
+    @Benchmark
+    public int tokenizeAll() throws MissingInputException {
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap(this.input);
+        int words = 0;
+        while (input.canReadNonWhitespace()) {
+            input.readWord();
+            words++;
+        }
+
+        return words;
+    }
+
+    private static final class EchoCommand implements CommandModule<Object> {
+
+        @Override
+        public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+            return factory.newChain()
+                    .then(factory.literal("echo").build())
+                    .arguments()
+                    .then(factory.required(MESSAGE_KEY).mapWith(greedy()).build())
+                    .build();
+        }
+
+        @Override
+        public void execute(final CommandContext<Object> context) {
+            context.require(MESSAGE_KEY);
+        }
+    }
+}
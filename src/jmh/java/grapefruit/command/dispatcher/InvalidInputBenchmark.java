@@ -0,0 +1,97 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.CommandException;
+import grapefruit.command.CommandModule;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
+import grapefruit.command.dispatcher.config.DispatcherConfig;
+import grapefruit.command.util.key.Key;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static grapefruit.command.argument.mapper.builtin.NumericArgumentMapper.intMapper;
+
+/*
+ * Throughput of dispatching invalid input, with and without stack traces
+ * being filled in for the resulting command exceptions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InvalidInputBenchmark {
+    private static final Key<Integer> COUNT_KEY = Key.named(Integer.class, "count");
+    @Param({ "false", "true" })
+    private boolean stacklessExceptions;
+    private CommandDispatcher<Object> dispatcher;
+
+    @Setup
+    public void setup() {
+        final DispatcherConfig.Builder<Object> config = DispatcherConfig.builder();
+        if (this.stacklessExceptions) config.stacklessExceptions();
+
+        this.dispatcher = CommandDispatcher.using(config.build());
+        this.dispatcher.register(new RepeatCommand());
+    }
+
+    @Benchmark
+    public Object unknownCommand() {
+        return dispatchInvalid("repaet 5");
+    }
+
+    @Benchmark
+    public boolean unknownCommandFastReject() {
+        return this.dispatcher.isCommand("repaet 5");
+    }
+
+    @Benchmark
+    public Object unrecognizedFlag() {
+        return dispatchInvalid("repeat 5 --unknown");
+    }
+
+    @Benchmark
+    public Object wrongType() {
+        return dispatchInvalid("repeat five");
+    }
+
+    private Object dispatchInvalid(final String input) {
+        try {
+            this.dispatcher.dispatch(new Object(), input);
+            throw new IllegalStateException("Input '%s' was expected to be invalid".formatted(input));
+        } catch (final CommandException ex) {
+            return ex;
+        }
+    }
+
+    private static final class RepeatCommand implements CommandModule<Object> {
+
+        @Override
+        public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+            return factory.newChain()
+                    .then(factory.literal("repeat").build())
+                    .arguments()
+                    .then(factory.required(COUNT_KEY).mapWith(intMapper()).build())
+                    .flags()
+                    .then(factory.boolFlag("verbose").assumeShorthand().build())
+                    .build();
+        }
+
+        @Override
+        public void execute(final CommandContext<Object> context) {
+            context.require(COUNT_KEY);
+        }
+    }
+}
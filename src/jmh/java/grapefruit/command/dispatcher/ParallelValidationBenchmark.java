@@ -0,0 +1,103 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.CommandException;
+import grapefruit.command.CommandModule;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
+import grapefruit.command.dispatcher.config.DispatcherConfig;
+import grapefruit.command.util.key.Key;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static grapefruit.command.argument.mapper.builtin.NumericArgumentMapper.intMapper;
+import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.word;
+
+/*
+ * Throughput of validating commands without executing them, either from a
+ * parallel stream, or from as many threads as there are cores. Every fourth
+ * input is invalid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParallelValidationBenchmark {
+    private static final int BATCH_SIZE = 4096;
+    private static final Key<String> TARGET_KEY = Key.named(String.class, "target");
+    private static final Key<Integer> DURATION_KEY = Key.named(Integer.class, "duration");
+    private CommandDispatcher<Object> dispatcher;
+    private List<String> inputs;
+
+    @Setup
+    public void setup() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .stacklessExceptions()
+                .build();
+        this.dispatcher = CommandDispatcher.using(config);
+        this.dispatcher.register(new MuteCommand());
+        this.inputs = IntStream.range(0, BATCH_SIZE)
+                .mapToObj(x -> x % 4 == 3 ? "mod mute player%d forever".formatted(x) : "mod mute player%d %d -s".formatted(x, x))
+                .toList();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long parallelStream() {
+        return this.inputs.parallelStream()
+                .filter(this::isValid)
+                .count();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean concurrentCallers() {
+        return isValid(this.inputs.get(ThreadLocalRandom.current().nextInt(BATCH_SIZE)));
+    }
+
+    private boolean isValid(final String input) {
+        try {
+            this.dispatcher.parse(new Object(), input);
+            return true;
+        } catch (final CommandException ex) {
+            return false;
+        }
+    }
+
+    private static final class MuteCommand implements CommandModule<Object> {
+
+        @Override
+        public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+            return factory.newChain()
+                    .then(factory.literal("mod").build())
+                    .then(factory.literal("mute").build())
+                    .arguments()
+                    .then(factory.required(TARGET_KEY).mapWith(word()).build())
+                    .then(factory.required(DURATION_KEY).mapWith(intMapper()).build())
+                    .flags()
+                    .then(factory.boolFlag("silent").assumeShorthand().build())
+                    .build();
+        }
+
+        @Override
+        public void execute(final CommandContext<Object> context) {
+            throw new UnsupportedOperationException("Commands are never executed while validating them");
+        }
+    }
+}
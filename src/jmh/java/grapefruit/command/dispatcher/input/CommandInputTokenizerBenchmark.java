@@ -0,0 +1,59 @@
+package grapefruit.command.dispatcher.input;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Run with the gc profiler (enabled in the build script) to see the number
+ * of bytes allocated per operation (gc.alloc.rate.norm). Each operation
+ * reads a single token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommandInputTokenizerBenchmark {
+    @Param({ "8", "200" })
+    private int tokenLength;
+    private String word;
+    private String quoted;
+
+    @Setup
+    public void setup() {
+        final String token = "a".repeat(this.tokenLength);
+        this.word = "   " + token + " rest";
+        this.quoted = "   \"" + token.substring(1) + "\" rest";
+    }
+
+    @Benchmark
+    public void readWord(final Blackhole blackhole) throws MissingInputException {
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap(this.word);
+        blackhole.consume(input.readWord());
+    }
+
+    @Benchmark
+    public void readQuotable(final Blackhole blackhole) throws MissingInputException {
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap(this.quoted);
+        blackhole.consume(input.readQuotable());
+    }
+
+    @Benchmark
+    public void readRemaining(final Blackhole blackhole) throws MissingInputException {
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap(this.word);
+        blackhole.consume(input.readRemaining());
+    }
+}
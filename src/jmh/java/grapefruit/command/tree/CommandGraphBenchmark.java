@@ -0,0 +1,90 @@
+package grapefruit.command.tree;
+
+import grapefruit.command.CommandException;
+import grapefruit.command.CommandModule;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
+import grapefruit.command.dispatcher.CommandContext;
+import grapefruit.command.dispatcher.input.CommandInputTokenizer;
+import grapefruit.command.util.Tuple2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CommandGraphBenchmark {
+    @Param({ "10", "1000", "10000" })
+    private int rootCommands;
+    private CommandGraph<Object> graph;
+    private String firstCommand;
+    private String lastCommand;
+    private String lastAlias;
+    private String partialCommand;
+
+    @Setup
+    public void setup() {
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        this.graph = new CommandGraph<>();
+
+        for (int i = 0; i < this.rootCommands; i++) {
+            final CommandChain<Object> chain = factory.newChain()
+                    .then(factory.literal("command" + i).aliases("alias" + i, "cmd" + i).build())
+                    .then(factory.literal("sub").build())
+                    .build();
+
+            this.graph.insert(chain, new NoopCommand(chain));
+        }
+
+        this.firstCommand = "command0 sub";
+        this.lastCommand = "COMMAND%d sub".formatted(this.rootCommands - 1);
+        this.lastAlias = "alias%d sub".formatted(this.rootCommands - 1);
+        this.partialCommand = "command%d".formatted((this.rootCommands - 1) / 10);
+    }
+
+    @Benchmark
+    public CommandModule<Object> queryFirst() throws CommandException {
+        return this.graph.query(CommandInputTokenizer.wrap(this.firstCommand));
+    }
+
+    @Benchmark
+    public CommandModule<Object> queryLast() throws CommandException {
+        return this.graph.query(CommandInputTokenizer.wrap(this.lastCommand));
+    }
+
+    @Benchmark
+    public CommandModule<Object> queryAlias() throws CommandException {
+        return this.graph.query(CommandInputTokenizer.wrap(this.lastAlias));
+    }
+
+    @Benchmark
+    public Tuple2<List<String>, CommandModule<Object>> completePartial() {
+        return this.graph.complete(CommandInputTokenizer.wrap(this.partialCommand));
+    }
+
+    private record NoopCommand(CommandChain<Object> chain) implements CommandModule<Object> {
+
+        @Override
+        public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+            return this.chain;
+        }
+
+        @Override
+        public void execute(final CommandContext<Object> context) {}
+    }
+}
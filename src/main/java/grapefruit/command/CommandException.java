@@ -1,16 +1,36 @@
 package grapefruit.command;
 
+import org.jspecify.annotations.Nullable;
+
 import java.io.Serial;
 
 public class CommandException extends Exception {
     @Serial
     private static final long serialVersionUID = -3461202024417516177L;
+    // Whether exceptions created on the current thread skip filling in their stack trace
+    private static final ThreadLocal<Boolean> STACKLESS = ThreadLocal.withInitial(() -> false);
 
     public CommandException() {
-        super();
+        this(null);
+    }
+
+    public CommandException(final @Nullable Throwable cause) {
+        super(cause == null ? null : cause.toString(), cause, true, !isStackless());
+    }
+
+    private static boolean isStackless() {
+        return STACKLESS.get();
     }
 
-    public CommandException(final Throwable cause) {
-        super(cause);
+    /*
+     * Sets whether command exceptions created on the current thread should
+     * omit their stack trace, and returns the previous setting, so that it
+     * can be restored afterwards. Only meant to be used by the dispatcher,
+     * which enables it for the duration of a dispatch, if configured so.
+     */
+    protected static boolean stackless(final boolean stackless) {
+        final boolean previous = STACKLESS.get();
+        STACKLESS.set(stackless);
+        return previous;
     }
 }
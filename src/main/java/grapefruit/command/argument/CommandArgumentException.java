@@ -7,18 +7,41 @@ import java.io.Serial;
 
 import static java.util.Objects.requireNonNull;
 
+/*
+ * Instead of copying the consumed and remaining parts of the input up front,
+ * the whole input is kept along with the cursor position, and the parts are
+ * only created when they're accessed. Exceptions are frequently created just
+ * to be inspected (or discarded), without their input ever being read.
+ */
 public class CommandArgumentException extends CommandException {
     @Serial
     private static final long serialVersionUID = -8437065396865235634L;
-    private final String consumed;
+    private final String input;
+    private final int cursor;
     private final String argument;
-    private final String remaining;
 
-    public CommandArgumentException(final @Nullable CommandException cause, final String consumed, final String argument, final String remaining) {
+    public CommandArgumentException(final @Nullable CommandException cause, final String input, final int cursor, final String argument) {
         super(cause);
-        this.consumed = requireNonNull(consumed, "consumed cannot be null");
+        this.input = requireNonNull(input, "input cannot be null");
+        if (cursor < 0 || cursor > input.length()) {
+            throw new IndexOutOfBoundsException("Cursor %d out of bounds for length %d".formatted(cursor, input.length()));
+        }
+
+        this.cursor = cursor;
         this.argument = requireNonNull(argument, "argument cannot be null");
-        this.remaining = requireNonNull(remaining, "remaining cannot be null");
+    }
+
+    public CommandArgumentException(final String input, final int cursor, final String argument) {
+        this(null, input, cursor, argument);
+    }
+
+    public CommandArgumentException(final @Nullable CommandException cause, final String consumed, final String argument, final String remaining) {
+        this(
+                cause,
+                requireNonNull(consumed, "consumed cannot be null") + requireNonNull(remaining, "remaining cannot be null"),
+                consumed.length(),
+                argument
+        );
     }
 
     public CommandArgumentException(final String consumed, final String argument, final String remaining) {
@@ -26,7 +49,7 @@ public class CommandArgumentException extends CommandException {
     }
 
     public String consumed() {
-        return this.consumed;
+        return this.input.substring(0, this.cursor);
     }
 
     public String argument() {
@@ -34,6 +57,19 @@ public class CommandArgumentException extends CommandException {
     }
 
     public String remaining() {
-        return this.remaining;
+        return this.input.substring(this.cursor);
+    }
+
+    /*
+     * The whole input, that was being processed when this exception was
+     * created.
+     */
+    public String input() {
+        return this.input;
+    }
+
+    // The position in the input, where consumed ends and remaining begins.
+    public int cursor() {
+        return this.cursor;
     }
 }
@@ -45,12 +45,12 @@ public abstract class CommandArgumentImpl<S, T> implements CommandArgument<S, T>
 
         Literal(final Key<String> key, final @Nullable CommandCondition<S> condition, final Set<String> aliases) {
             super(key, condition);
-            this.aliases = requireNonNull(aliases, "aliases cannot be null");
+            this.aliases = Set.copyOf(requireNonNull(aliases, "aliases cannot be null"));
         }
 
         @Override
         public Set<String> aliases() {
-            return Set.copyOf(this.aliases);
+            return this.aliases;
         }
 
         @Override
@@ -4,12 +4,40 @@ import java.util.List;
 
 public interface CommandChain<S> {
 
+    /*
+     * Chains are immutable, the lists returned by route, arguments and flags
+     * are unmodifiable and shared between calls.
+     */
     List<CommandArgument.Literal<S>> route();
 
     List<CommandArgument.Required<S, ?>> arguments();
 
     List<CommandArgument.Flag<S, ?>> flags();
 
+    default CommandArgument.Literal<S> literalAt(final int index) {
+        return route().get(index);
+    }
+
+    default int routeLength() {
+        return route().size();
+    }
+
+    default CommandArgument.Required<S, ?> argumentAt(final int index) {
+        return arguments().get(index);
+    }
+
+    default int argumentCount() {
+        return arguments().size();
+    }
+
+    default CommandArgument.Flag<S, ?> flagAt(final int index) {
+        return flags().get(index);
+    }
+
+    default int flagCount() {
+        return flags().size();
+    }
+
     static <S> CommandChainFactory<S> factory() {
         return new CommandChainFactoryImpl<>();
     }
@@ -7,6 +7,10 @@ import static grapefruit.command.util.StringUtil.containsIgnoreCase;
 import static grapefruit.command.util.StringUtil.containsWhitespace;
 import static java.util.Objects.requireNonNull;
 
+/*
+ * Chains are immutable, the lists passed to the constructor are copied once,
+ * so that accessors can return them as they are.
+ */
 final class CommandChainImpl<S> implements CommandChain<S> {
     private final List<CommandArgument.Literal<S>> route;
     private final List<CommandArgument.Required<S, ?>> arguments;
@@ -17,24 +21,54 @@ final class CommandChainImpl<S> implements CommandChain<S> {
             final List<CommandArgument.Required<S, ?>> arguments,
             final List<CommandArgument.Flag<S, ?>> flags
     ) {
-        this.route = requireNonNull(route, "route cannot be null");
-        this.arguments = requireNonNull(arguments, "arguments cannot be null");
-        this.flags = requireNonNull(flags, "flags cannot be null");
+        this.route = List.copyOf(requireNonNull(route, "route cannot be null"));
+        this.arguments = List.copyOf(requireNonNull(arguments, "arguments cannot be null"));
+        this.flags = List.copyOf(requireNonNull(flags, "flags cannot be null"));
     }
 
     @Override
     public List<CommandArgument.Literal<S>> route() {
-        return List.copyOf(this.route);
+        return this.route;
     }
 
     @Override
     public List<CommandArgument.Required<S, ?>> arguments() {
-        return List.copyOf(this.arguments);
+        return this.arguments;
     }
 
     @Override
     public List<CommandArgument.Flag<S, ?>> flags() {
-        return List.copyOf(this.flags);
+        return this.flags;
+    }
+
+    @Override
+    public CommandArgument.Literal<S> literalAt(final int index) {
+        return this.route.get(index);
+    }
+
+    @Override
+    public int routeLength() {
+        return this.route.size();
+    }
+
+    @Override
+    public CommandArgument.Required<S, ?> argumentAt(final int index) {
+        return this.arguments.get(index);
+    }
+
+    @Override
+    public int argumentCount() {
+        return this.arguments.size();
+    }
+
+    @Override
+    public CommandArgument.Flag<S, ?> flagAt(final int index) {
+        return this.flags.get(index);
+    }
+
+    @Override
+    public int flagCount() {
+        return this.flags.size();
     }
 
     static <S> CommandChain.LiteralBuilder<S> begin() {
@@ -6,6 +6,10 @@ public class DuplicateFlagException extends CommandArgumentException {
     @Serial
     private static final long serialVersionUID = 5344480879012741190L;
 
+    public DuplicateFlagException(final String input, final int cursor, final String argument) {
+        super(input, cursor, argument);
+    }
+
     public DuplicateFlagException(final String consumed, final String argument, final String remaining) {
         super(consumed, argument, remaining);
     }
@@ -7,6 +7,16 @@ public class FlagGroupException extends CommandArgumentException {
     private static final long serialVersionUID = 8300222690822649697L;
     private final char shorthand;
 
+    public FlagGroupException(
+            final String input,
+            final int cursor,
+            final String argument,
+            final char shorthand
+    ) {
+        super(input, cursor, argument);
+        this.shorthand = shorthand;
+    }
+
     public FlagGroupException(
             final String consumed,
             final String argument,
@@ -1,6 +1,10 @@
 package grapefruit.command.argument;
 
+import grapefruit.command.util.BKTree;
+import org.jspecify.annotations.Nullable;
+
 import java.io.Serial;
+import java.util.List;
 
 import static java.util.Objects.requireNonNull;
 
@@ -8,10 +12,35 @@ public class UnrecognizedFlagException extends CommandArgumentException {
     @Serial
     private static final long serialVersionUID = -3923231453409088302L;
     private final String exactFlag;
+    // Flag names mapped to their flag expressions, not serialized
+    private final transient @Nullable BKTree<String> suggestionIndex;
+
+    public UnrecognizedFlagException(
+            final String input,
+            final int cursor,
+            final String argument,
+            final String exactFlag,
+            final BKTree<String> suggestionIndex
+    ) {
+        super(input, cursor, argument);
+        this.exactFlag = requireNonNull(exactFlag, "exactFlag");
+        this.suggestionIndex = requireNonNull(suggestionIndex, "suggestionIndex cannot be null");
+    }
+
+    public UnrecognizedFlagException(final String input, final int cursor, final String argument, final String exactFlag) {
+        super(input, cursor, argument);
+        this.exactFlag = requireNonNull(exactFlag, "exactFlag");
+        this.suggestionIndex = null;
+    }
+
+    public UnrecognizedFlagException(final String input, final int cursor, final String argument) {
+        this(input, cursor, argument, argument);
+    }
 
     public UnrecognizedFlagException(final String consumed, final String argument, final String remaining, final String exactFlag) {
         super(consumed, argument, remaining);
         this.exactFlag = requireNonNull(exactFlag, "exactFlag");
+        this.suggestionIndex = null;
     }
 
     public UnrecognizedFlagException(final String consumed, final String argument, final String remaining) {
@@ -21,4 +50,15 @@ public class UnrecognizedFlagException extends CommandArgumentException {
     public String exactFlag() {
         return this.exactFlag;
     }
+
+    /*
+     * Returns at most limit flag expressions (such as '--name'), whose names
+     * are within maxDistance edits of the exact flag, closest first. Empty,
+     * if the flags of the command are unknown.
+     */
+    public List<String> suggestions(final int maxDistance, final int limit) {
+        return this.suggestionIndex == null
+                ? List.of()
+                : this.suggestionIndex.search(this.exactFlag, maxDistance, limit);
+    }
 }
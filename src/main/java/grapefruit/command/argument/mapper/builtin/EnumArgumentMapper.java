@@ -7,83 +7,110 @@ import grapefruit.command.completion.CompletionBuilder;
 import grapefruit.command.dispatcher.CommandContext;
 import grapefruit.command.dispatcher.input.CommandInputTokenizer;
 import grapefruit.command.dispatcher.input.MissingInputException;
+import grapefruit.command.util.BKTree;
+import grapefruit.command.util.StringUtil;
+import org.jspecify.annotations.Nullable;
 
 import java.io.Serial;
+import java.util.List;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import static grapefruit.command.util.StringUtil.equalsIgnoreCase;
 import static java.util.Objects.requireNonNull;
 
 public final class EnumArgumentMapper<S, E extends Enum<E>> extends AbstractArgumentMapper<S, E> {
     private final Class<E> type;
+    // getEnumConstants returns a new array on each call, so we cache it
+    private final E[] constants;
     private final EnumResolver<E> resolver;
-    private final Supplier<ArgumentMappingException> exceptionSupplier;
+    // Keys (see EnumResolver#key) of the constants mapped to their completions, used to suggest constants
+    private final BKTree<String> suggestionIndex;
+    // Null, if EnumMappingException is to be thrown
+    private final @Nullable Supplier<ArgumentMappingException> exceptionSupplier;
 
-    private EnumArgumentMapper(final Class<E> type, final EnumResolver<E> resolver, final Supplier<ArgumentMappingException> exceptionSupplier) {
+    private EnumArgumentMapper(final Class<E> type, final EnumResolver<E> resolver, final @Nullable Supplier<ArgumentMappingException> exceptionSupplier) {
         super(type, false);
         this.type = requireNonNull(type, "type cannot be null");
+        this.constants = type.getEnumConstants();
         this.resolver = requireNonNull(resolver, "resolver cannot be null");
-        this.exceptionSupplier = requireNonNull(exceptionSupplier, "exceptionSupplier cannot be null");
+        final BKTree.Builder<String> suggestions = BKTree.builder();
+        for (final E constant : this.constants) {
+            suggestions.putIfAbsent(resolver.key(constant.name()), resolver.complete(constant));
+        }
+
+        this.suggestionIndex = suggestions.build();
+
+        this.exceptionSupplier = exceptionSupplier;
     }
 
     public static <S, E extends Enum<E>> EnumArgumentMapper<S, E> strict(final Class<E> type, final Supplier<ArgumentMappingException> exceptionSupplier) {
+        requireNonNull(exceptionSupplier, "exceptionSupplier cannot be null");
         return new EnumArgumentMapper<>(type, EnumResolver.strict(), exceptionSupplier);
     }
 
     public static <S, E extends Enum<E>> EnumArgumentMapper<S, E> strict(final Class<E> type) {
-        return strict(type, () -> new EnumMappingException(type));
+        return new EnumArgumentMapper<>(type, EnumResolver.strict(), null);
     }
 
     public static <S, E extends Enum<E>> EnumArgumentMapper<S, E> lenient(final Class<E> type, final Supplier<ArgumentMappingException> exceptionSupplier) {
+        requireNonNull(exceptionSupplier, "exceptionSupplier cannot be null");
         return new EnumArgumentMapper<>(type, EnumResolver.lenient(), exceptionSupplier);
     }
 
     public static <S, E extends Enum<E>> EnumArgumentMapper<S, E> lenient(final Class<E> type) {
-        return lenient(type, () -> new EnumMappingException(type));
+        return new EnumArgumentMapper<>(type, EnumResolver.lenient(), null);
     }
 
     @Override
     public E tryMap(final CommandContext<S> context, final CommandInputTokenizer input) throws ArgumentMappingException, MissingInputException {
-        final String value = input.readWord();
-        for (final E e : this.type.getEnumConstants()) {
+        final CharSequence value = input.readWordView();
+        for (final E e : this.constants) {
             if (this.resolver.matches(e, value)) return e;
         }
 
-        throw this.exceptionSupplier.get();
+        if (this.exceptionSupplier != null) throw this.exceptionSupplier.get();
+
+        throw new EnumMappingException(this.type, this.resolver.key(value.toString()), this.suggestionIndex);
     }
 
     @Override
     public CompletionAccumulator complete(final CommandContext<S> context, final CompletionBuilder builder) {
-        return builder.includeStrings(this.type.getEnumConstants(), this.resolver::complete).build();
+        return builder.includeStrings(this.constants, this.resolver::complete).build();
     }
 
     private interface EnumResolver<E extends Enum<E>> {
 
-        boolean matches(final E candidate, final String input);
+        boolean matches(final E candidate, final CharSequence input);
 
         String complete(final E value);
 
+        // Turns a name, or input into the form names are compared in
+        String key(final String value);
+
         static <E extends Enum<E>> EnumResolver<E> strict() {
-            return new EnumResolverImpl<>((candidate, value) -> candidate.name().equals(value), Enum::name);
+            return new EnumResolverImpl<>((candidate, value) -> candidate.name().contentEquals(value), Enum::name, Function.identity());
         }
 
         static <E extends Enum<E>> EnumResolver<E> lenient() {
-            return new EnumResolverImpl<>((candidate, value) -> candidate.name().equalsIgnoreCase(value), x -> x.name().toLowerCase());
+            return new EnumResolverImpl<>((candidate, value) -> equalsIgnoreCase(candidate.name(), value), x -> x.name().toLowerCase(), StringUtil::fold);
         }
     }
 
     private static final class EnumResolverImpl<E extends Enum<E>> implements EnumResolver<E> {
-        private final BiPredicate<E, String> matcher;
+        private final BiPredicate<E, CharSequence> matcher;
         private final Function<E, String> completer;
+        private final Function<String, String> keyMapper;
 
-        private EnumResolverImpl(final BiPredicate<E, String> matcher, final Function<E, String> completer) {
+        private EnumResolverImpl(final BiPredicate<E, CharSequence> matcher, final Function<E, String> completer, final Function<String, String> keyMapper) {
             this.matcher = matcher;
             this.completer = completer;
+            this.keyMapper = keyMapper;
         }
 
         @Override
-        public boolean matches(final E candidate, final String input) {
+        public boolean matches(final E candidate, final CharSequence input) {
             return this.matcher.test(candidate, input);
         }
 
@@ -91,19 +118,51 @@ public final class EnumArgumentMapper<S, E extends Enum<E>> extends AbstractArgu
         public String complete(final E value) {
             return this.completer.apply(value);
         }
+
+        @Override
+        public String key(final String value) {
+            return this.keyMapper.apply(value);
+        }
     }
 
     public static final class EnumMappingException extends ArgumentMappingException {
         @Serial
         private static final long serialVersionUID = -5281645874422380564L;
         private final Class<? extends Enum<?>> type;
+        private final @Nullable String key;
+        // Keys of the constants mapped to their completions, not serialized
+        private final transient @Nullable BKTree<String> suggestionIndex;
 
         public EnumMappingException(final Class<? extends Enum<?>> type) {
             this.type = requireNonNull(type, "type cannot be null");
+            this.key = null;
+            this.suggestionIndex = null;
+        }
+
+        /*
+         * The key is the invalid input, in the form the keys of the
+         * suggestion index are in (folded, if constants are matched
+         * ignoring case).
+         */
+        public EnumMappingException(final Class<? extends Enum<?>> type, final String key, final BKTree<String> suggestionIndex) {
+            this.type = requireNonNull(type, "type cannot be null");
+            this.key = requireNonNull(key, "key cannot be null");
+            this.suggestionIndex = requireNonNull(suggestionIndex, "suggestionIndex cannot be null");
         }
 
         public Class<? extends Enum<?>> type() {
             return this.type;
         }
+
+        /*
+         * Returns at most limit constants (in the form they'd be completed
+         * in), whose names are within maxDistance edits of the invalid input,
+         * closest first.
+         */
+        public List<String> suggestions(final int maxDistance, final int limit) {
+            return this.key == null || this.suggestionIndex == null
+                    ? List.of()
+                    : this.suggestionIndex.search(this.key, maxDistance, limit);
+        }
     }
 }
@@ -13,10 +13,10 @@ import java.util.function.Supplier;
 import static java.util.Objects.requireNonNull;
 
 public final class NumericArgumentMapper<S, N extends Number> extends AbstractArgumentMapper<S, N> {
-    private final Function<String, N> internalMapper;
+    private final Function<CharSequence, N> internalMapper;
     private final Supplier<ArgumentMappingException> exceptionSupplier;
 
-    private NumericArgumentMapper(final Class<N> type, final Function<String, N> internalMapper, final Supplier<ArgumentMappingException> exceptionSupplier) {
+    private NumericArgumentMapper(final Class<N> type, final Function<CharSequence, N> internalMapper, final Supplier<ArgumentMappingException> exceptionSupplier) {
         super(type, false);
         this.internalMapper = requireNonNull(internalMapper, "internalMapper cannot be null");
         this.exceptionSupplier = requireNonNull(exceptionSupplier, "exceptionSupplier cannot be null");
@@ -27,7 +27,7 @@ public final class NumericArgumentMapper<S, N extends Number> extends AbstractAr
     }
 
     public static <S> NumericArgumentMapper<S, Byte> byteMapper(final Supplier<ArgumentMappingException> exceptionSupplier) {
-        return new NumericArgumentMapper<>(Byte.class, Byte::parseByte, exceptionSupplier);
+        return new NumericArgumentMapper<>(Byte.class, NumericArgumentMapper::parseByte, exceptionSupplier);
     }
 
     public static <S> NumericArgumentMapper<S, Short> shortMapper() {
@@ -35,7 +35,7 @@ public final class NumericArgumentMapper<S, N extends Number> extends AbstractAr
     }
 
     public static <S> NumericArgumentMapper<S, Short> shortMapper(final Supplier<ArgumentMappingException> exceptionSupplier) {
-        return new NumericArgumentMapper<>(Short.class, Short::parseShort, exceptionSupplier);
+        return new NumericArgumentMapper<>(Short.class, NumericArgumentMapper::parseShort, exceptionSupplier);
     }
 
     public static <S> NumericArgumentMapper<S, Integer> intMapper() {
@@ -43,7 +43,7 @@ public final class NumericArgumentMapper<S, N extends Number> extends AbstractAr
     }
 
     public static <S> NumericArgumentMapper<S, Integer> intMapper(final Supplier<ArgumentMappingException> exceptionSupplier) {
-        return new NumericArgumentMapper<>(Integer.class, Integer::parseInt, exceptionSupplier);
+        return new NumericArgumentMapper<>(Integer.class, x -> Integer.parseInt(x, 0, x.length(), 10), exceptionSupplier);
     }
 
     public static <S> NumericArgumentMapper<S, Long> longMapper() {
@@ -51,7 +51,7 @@ public final class NumericArgumentMapper<S, N extends Number> extends AbstractAr
     }
 
     public static <S> NumericArgumentMapper<S, Long> longMapper(final Supplier<ArgumentMappingException> exceptionSupplier) {
-        return new NumericArgumentMapper<>(Long.class, Long::parseLong, exceptionSupplier);
+        return new NumericArgumentMapper<>(Long.class, x -> Long.parseLong(x, 0, x.length(), 10), exceptionSupplier);
     }
 
     public static <S> NumericArgumentMapper<S, Float> floatMapper() {
@@ -59,7 +59,7 @@ public final class NumericArgumentMapper<S, N extends Number> extends AbstractAr
     }
 
     public static <S> NumericArgumentMapper<S, Float> floatMapper(final Supplier<ArgumentMappingException> exceptionSupplier) {
-        return new NumericArgumentMapper<>(Float.class, Float::parseFloat, exceptionSupplier);
+        return new NumericArgumentMapper<>(Float.class, x -> Float.parseFloat(x.toString()), exceptionSupplier);
     }
 
     public static <S> NumericArgumentMapper<S, Double> doubleMapper() {
@@ -67,18 +67,37 @@ public final class NumericArgumentMapper<S, N extends Number> extends AbstractAr
     }
 
     public static <S> NumericArgumentMapper<S, Double> doubleMapper(final Supplier<ArgumentMappingException> exceptionSupplier) {
-        return new NumericArgumentMapper<>(Double.class, Double::parseDouble, exceptionSupplier);
+        return new NumericArgumentMapper<>(Double.class, x -> Double.parseDouble(x.toString()), exceptionSupplier);
     }
 
     @Override
     public N tryMap(final CommandContext<S> context, final CommandInputTokenizer input) throws ArgumentMappingException, MissingInputException {
         try {
-            return this.internalMapper.apply(input.readWord());
+            // Integral types are parsed straight from the input, without copying the word
+            return this.internalMapper.apply(input.readWordView());
         } catch (final NumberFormatException ex) {
             throw this.exceptionSupplier.get();
         }
     }
 
+    private static byte parseByte(final CharSequence value) {
+        final int result = Integer.parseInt(value, 0, value.length(), 10);
+        if (result < Byte.MIN_VALUE || result > Byte.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range. Value:\"%s\"".formatted(value));
+        }
+
+        return (byte) result;
+    }
+
+    private static short parseShort(final CharSequence value) {
+        final int result = Integer.parseInt(value, 0, value.length(), 10);
+        if (result < Short.MIN_VALUE || result > Short.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range. Value:\"%s\"".formatted(value));
+        }
+
+        return (short) result;
+    }
+
     public static final class NumberMappingException extends ArgumentMappingException {
         @Serial
         private static final long serialVersionUID = 686300879299755230L;
@@ -0,0 +1,51 @@
+package grapefruit.command.dispatcher;
+
+/*
+ * Helpers for bitmasks stored in long arrays, the bit at index i being
+ * stored in word i / 64.
+ */
+final class BitMask {
+    private BitMask() {}
+
+    // Creates a mask large enough to hold the provided number of bits.
+    static long[] create(final int bits) {
+        return new long[(bits + 63) >>> 6];
+    }
+
+    static boolean get(final long[] mask, final int index) {
+        return (mask[index >>> 6] & (1L << index)) != 0L;
+    }
+
+    static void set(final long[] mask, final int index) {
+        mask[index >>> 6] |= 1L << index;
+    }
+
+    static void clear(final long[] mask, final int index) {
+        mask[index >>> 6] &= ~(1L << index);
+    }
+
+    // Returns the index of the first clear bit in [from, to), or -1, if every bit is set.
+    static int nextClear(final long[] mask, final int from, final int to) {
+        if (from >= to) return -1;
+
+        int wordIndex = from >>> 6;
+        // Treat bits below from as set
+        long word = ~mask[wordIndex] & (-1L << from);
+        while (true) {
+            if (word != 0L) {
+                final int index = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                return index < to ? index : -1;
+            }
+
+            if (++wordIndex > (to - 1) >>> 6) return -1;
+            word = ~mask[wordIndex];
+        }
+    }
+
+    // Returns the number of clear bits in [from, to).
+    static int countClear(final long[] mask, final int from, final int to) {
+        int count = 0;
+        for (int i = nextClear(mask, from, to); i != -1; i = nextClear(mask, i + 1, to)) count++;
+        return count;
+    }
+}
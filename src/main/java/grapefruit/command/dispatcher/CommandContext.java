@@ -7,6 +7,23 @@ import org.jspecify.annotations.Nullable;
 import java.util.Map;
 import java.util.Optional;
 
+/*
+ * Holds the values of a single dispatch (or completion). Contexts aren't
+ * thread-safe, a context is only ever accessed by one thread at a time:
+ *
+ * - Parsing, conditions, listeners and the command itself are run one
+ *   after another. If they run on different threads (asynchronous
+ *   dispatches, batches), the context is handed over through an executor
+ *   or a completed future, both of which establish a happens-before edge.
+ * - Timeouts only cancel the deadline of the context, which is safe to
+ *   access from any thread. The exception is an asynchronous dispatch
+ *   that doesn't finish in time: post execution listeners are told about
+ *   the timeout while the command may still be running, so they may only
+ *   read values that have been stored before the command was executed.
+ *
+ * Commands passing their context on to other threads are responsible for
+ * doing so safely, and must stop accessing it once they've returned.
+ */
 public interface CommandContext<S> {
 
     S source();
@@ -30,4 +47,13 @@ public interface CommandContext<S> {
     boolean remove(final Key<?> key);
 
     Map<Key<?>, Object> asMap();
+
+    /*
+     * The deadline of the dispatch (or completion) this context belongs to.
+     * Slow argument mappers, conditions and commands should check it, and
+     * stop once it has expired.
+     */
+    default Deadline deadline() {
+        return Deadline.none();
+    }
 }
@@ -9,19 +9,39 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static java.util.Objects.requireNonNull;
 
+/*
+ * Values of required arguments and flags are stored in slots assigned by
+ * the dispatch plan, values mapped to any other key (such as the ones
+ * injected by a ContextInjector) are stored in a regular map.
+ *
+ * A context belongs to a single dispatch (or completion), and is confined
+ * to one thread at a time (see CommandContext), thus it isn't synchronized.
+ * The deadline is the exception, it's safe to share.
+ */
 final class CommandContextImpl<S> implements CommandContext<S> {
-    private final Map<Key<?>, Object> internalStore = new HashMap<>();
-    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     private final S source;
-    private final CommandChain<S> chain;
+    private final DispatchPlan<S> plan;
+    // Null, unless the dispatch is timed, or the deadline has been requested
+    private @Nullable Deadline deadline;
+    private final Object[] values;
+    // Bits of slots that hold a value
+    private final long[] present;
+    // Created lazily, the first time a key outside the chain is stored
+    private @Nullable Map<Key<?>, Object> fallback;
+
+    CommandContextImpl(final S source, final DispatchPlan<S> plan) {
+        this(source, plan, null);
+    }
 
-    CommandContextImpl(final S source, final CommandChain<S> chain) {
+    CommandContextImpl(final S source, final DispatchPlan<S> plan, final @Nullable Deadline deadline) {
         this.source = requireNonNull(source, "source cannot be null");
-        this.chain = requireNonNull(chain, "chain cannot be null");
+        this.plan = requireNonNull(plan, "plan cannot be null");
+        this.deadline = deadline;
+        this.values = new Object[plan.slotCount()];
+        this.present = BitMask.create(plan.slotCount());
     }
 
     @Override
@@ -31,7 +51,28 @@ final class CommandContextImpl<S> implements CommandContext<S> {
 
     @Override
     public CommandChain<S> chain() {
-        return this.chain;
+        return this.plan.chain();
+    }
+
+    @Override
+    public Deadline deadline() {
+        // Untimed dispatches only create a deadline if someone asks for it, so that it can be cancelled
+        Deadline deadline = this.deadline;
+        if (deadline == null) {
+            deadline = Deadline.none();
+            this.deadline = deadline;
+        }
+
+        return deadline;
+    }
+
+    // Checks whether the deadline has expired, without creating one.
+    boolean expired() {
+        return this.deadline != null && this.deadline.expired();
+    }
+
+    void throwIfExpired() throws CommandTimeoutException {
+        if (expired()) throw new CommandTimeoutException();
     }
 
     @Override
@@ -52,25 +93,31 @@ final class CommandContextImpl<S> implements CommandContext<S> {
     @Override
     @SuppressWarnings("unchecked")
     public <T> @Nullable T nullable(final Key<T> key) {
-        try {
-            this.lock.readLock().lock();
-            Object found = this.internalStore.get(key);
-
-            // TODO check for class cast errors
-            return (T) found;
-        } finally {
-            this.lock.readLock().unlock();
-        }
+        final int slot = this.plan.slot(key);
+        final Object found = slot == -1
+                ? this.fallback == null ? null : this.fallback.get(key)
+                : this.values[slot];
+
+        // TODO check for class cast errors
+        return (T) found;
     }
 
     @Override
     public boolean has(final Key<?> key) {
-        try {
-            this.lock.readLock().lock();
-            return this.internalStore.containsKey(key);
-        } finally {
-            this.lock.readLock().unlock();
-        }
+        final int slot = this.plan.slot(key);
+        return slot == -1
+                ? this.fallback != null && this.fallback.containsKey(key)
+                : has(slot);
+    }
+
+    // Checks whether the provided slot holds a value.
+    boolean has(final int slot) {
+        return BitMask.get(this.present, slot);
+    }
+
+    // Returns the first slot in [from, to) without a value, or -1, if every slot holds one.
+    int firstAbsent(final int from, final int to) {
+        return BitMask.nextClear(this.present, from, to);
     }
 
     @Override
@@ -78,43 +125,70 @@ final class CommandContextImpl<S> implements CommandContext<S> {
         internalStore(key, value, false);
     }
 
+    // Stores the provided value in the provided slot, that is assigned to the provided key.
+    <T> void store(final int slot, final Key<T> key, final T value) {
+        if (has(slot)) {
+            throw new IllegalStateException("Cannot replace value mapped to key '%s'".formatted(key));
+        }
+
+        this.values[slot] = value;
+        BitMask.set(this.present, slot);
+    }
+
     @Override
     public <T> boolean replace(final Key<T> key, final T value) {
         return internalStore(key, value, true);
     }
 
     private <T> boolean internalStore(final Key<T> key, final T value, final boolean replace) {
-        try {
-            this.lock.writeLock().lock();
-            if (has(key) && !replace) {
-                throw new IllegalStateException("Cannot replace value mapped to key '%s'".formatted(key));
-            }
-
-            return this.internalStore.put(key, value) != null;
-        } finally {
-            this.lock.writeLock().unlock();
+        if (has(key) && !replace) {
+            throw new IllegalStateException("Cannot replace value mapped to key '%s'".formatted(key));
+        }
+
+        final int slot = this.plan.slot(key);
+        if (slot == -1) {
+            if (this.fallback == null) this.fallback = new HashMap<>();
+            return this.fallback.put(key, value) != null;
         }
+
+        final Object previous = this.values[slot];
+        this.values[slot] = value;
+        BitMask.set(this.present, slot);
+        return previous != null;
     }
 
     @Override
     public boolean remove(final Key<?> key) {
-        try {
-            this.lock.writeLock().lock();
-            return this.internalStore.remove(key) != null;
-        } finally {
-            this.lock.writeLock().unlock();
-        }
+        final int slot = this.plan.slot(key);
+        if (slot == -1) return this.fallback != null && this.fallback.remove(key) != null;
+
+        final Object previous = this.values[slot];
+        this.values[slot] = null;
+        BitMask.clear(this.present, slot);
+        return previous != null;
     }
 
     @Override
     public Map<Key<?>, Object> asMap() {
-        return Map.copyOf(this.internalStore);
+        return Map.copyOf(collect());
+    }
+
+    private Map<Key<?>, Object> collect() {
+        final Map<Key<?>, Object> result = this.fallback == null
+                ? new HashMap<>()
+                : new HashMap<>(this.fallback);
+        for (final Map.Entry<Key<?>, Integer> entry : this.plan.slots().entrySet()) {
+            final int slot = entry.getValue();
+            if (has(slot)) result.put(entry.getKey(), this.values[slot]);
+        }
+
+        return result;
     }
 
     @Override
     public String toString() {
         return ToStringer.create(this)
-                .append("internalStore", this.internalStore)
+                .append("internalStore", collect())
                 .toString();
     }
 }
@@ -7,6 +7,7 @@ import grapefruit.command.dispatcher.config.DispatcherConfig;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface CommandDispatcher<S> {
 
@@ -24,8 +25,66 @@ public interface CommandDispatcher<S> {
 
     void dispatch(final S source, final String command) throws CommandException;
 
+    /*
+     * Checks whether the first word of the provided input is the name or an
+     * alias of a registered command (ignoring case), without allocating. A
+     * return value of true doesn't mean that the input is valid, but if it's
+     * false, dispatching the input is guaranteed to fail with
+     * NoSuchCommandException, so it can be skipped entirely. If abbreviations
+     * are matched, and the first word isn't a full name, it's resolved
+     * against the registered commands instead, which may allocate.
+     */
+    boolean isCommand(final String input);
+
+    /*
+     * Same as dispatch, but instead of throwing an exception, rejected input
+     * and failed executions are reported by the returned outcome.
+     */
+    DispatchOutcome<S> tryDispatch(final S source, final String command);
+
+    /*
+     * Looks up and parses the provided command, and tests its conditions,
+     * without executing it. Throws the same exceptions dispatch would, if the
+     * command is rejected. Nothing is shared between calls, except for the
+     * registered commands, so this method can be called from parallel
+     * streams.
+     */
+    ParseTree<S> parse(final S source, final String command) throws CommandException;
+
+    /*
+     * Looks up and parses the provided command on the calling thread, then
+     * executes it using the executor set in DispatcherConfig. If the command
+     * is rejected, the returned future completes exceptionally with the
+     * exception dispatch would throw. If a pre execution listener cancels
+     * the execution, the returned future is cancelled. If the command doesn't
+     * finish in time, the returned future completes exceptionally with
+     * CommandTimeoutException, and post execution listeners are told about
+     * the timeout right away, without waiting for the command to return.
+     */
+    CompletableFuture<ExecutionResult<S>> dispatchAsync(final S source, final String command);
+
+    /*
+     * Dispatches every provided command, and returns their outcomes in the
+     * same order. Routes are resolved against the commands registered at the
+     * time of the call, and the commands are parsed in parallel, using the
+     * common fork-join pool. Argument mappers, conditions and context
+     * injectors may thus be invoked from multiple threads at once.
+     */
+    List<DispatchOutcome<S>> dispatchAll(final S source, final List<String> commands, final ExecutionOrder order);
+
+    default List<DispatchOutcome<S>> dispatchAll(final S source, final List<String> commands) {
+        return dispatchAll(source, commands, ExecutionOrder.ORDERED);
+    }
+
     List<CommandCompletion> complete(final S source, final String command);
 
+    /*
+     * Completes every provided command in parallel, see dispatchAll. The
+     * returned list holds the completions of each command, in the same order
+     * as the commands have been provided.
+     */
+    List<List<CommandCompletion>> completeAll(final S source, final List<String> commands);
+
     void subscribe(final ExecutionListener.Pre<S> pre);
 
     void unsubscribe(final ExecutionListener.Pre<S> pre);
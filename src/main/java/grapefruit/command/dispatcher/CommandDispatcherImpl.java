@@ -19,31 +19,48 @@ import grapefruit.command.completion.CompletionFactory;
 import grapefruit.command.dispatcher.config.DispatcherConfig;
 import grapefruit.command.dispatcher.input.CommandInputTokenizer;
 import grapefruit.command.dispatcher.input.MissingInputException;
-import grapefruit.command.tree.CommandGraph;
 import grapefruit.command.util.Tuple2;
 import grapefruit.command.util.function.CheckedConsumer;
+import org.jspecify.annotations.Nullable;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.function.Supplier;
-import java.util.stream.Stream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import static java.util.Objects.requireNonNull;
 
 final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
     private static final char SHORT_FLAG_PREFIX_CH = '-';
     private static final String SHORT_FLAG_PREFIX = String.valueOf(SHORT_FLAG_PREFIX_CH);
-    private static final String LONG_FLAG_PREFIX = SHORT_FLAG_PREFIX.repeat(2);
-    private final CommandGraph<S> commandGraph = new CommandGraph<>();
+    static final String LONG_FLAG_PREFIX = SHORT_FLAG_PREFIX.repeat(2);
+    // Fails asynchronous executions that haven't finished in time
+    static final ScheduledThreadPoolExecutor WATCHDOG = createWatchdog();
     private final CommandChainFactory<S> chainFactory = CommandChain.factory();
-    // Store computed CommandChain instances mapped to their respective CommandModule.
-    private final Map<CommandModule<S>, CommandChain<S>> computedChains = new HashMap<>();
+    /*
+     * Registrations never modify the current snapshot, they publish a new
+     * one instead. This way dispatching and completing commands never has to
+     * wait for registrations to finish. Registrations themselves are guarded
+     * by registrationLock.
+     */
+    private final Object registrationLock = new Object();
+    private volatile RegistrySnapshot<S> registry;
+    // Registered commands mapped to their graph entries, guarded by registrationLock
+    private final Map<CommandModule<S>, RegisteredCommand<S>> registered = new HashMap<>();
     private final Queue<ExecutionListener.Pre<S>> preExecutionListeners = new ConcurrentLinkedQueue<>();
     private final Queue<ExecutionListener.Post<S>> postExecutionListeners = new ConcurrentLinkedQueue<>();
     /* Configurable properties */
@@ -51,6 +68,16 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
     private final ContextInjector<S> contextInjector;
     private final CompletionFactory completionFactory;
     private final boolean eagerFlagCompletions;
+    private final boolean indexInput;
+    private final boolean stacklessExceptions;
+    private final boolean matchAbbreviations;
+    private final Executor executor;
+    // Null, unless commands of the same source are executed in order
+    private final @Nullable Function<S, ?> laneKey;
+    private final @Nullable ExecutionLanes lanes;
+    private final Function<CommandChain<S>, Optional<Duration>> timeouts;
+    // Null, if dispatch frames aren't reused
+    private final @Nullable ThreadLocal<DispatchFrame<S>> frames;
 
     CommandDispatcherImpl(final DispatcherConfig<S> config) {
         requireNonNull(config, "config cannot be null");
@@ -58,64 +85,468 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
         this.contextInjector = config.contextInjector();
         this.completionFactory = config.completionFactory();
         this.eagerFlagCompletions = config.eagerFlagCompletions();
+        this.indexInput = config.indexInput();
+        this.stacklessExceptions = config.stacklessExceptions();
+        this.matchAbbreviations = config.matchAbbreviations();
+        this.registry = RegistrySnapshot.empty(this.matchAbbreviations);
+        this.executor = config.executor();
+        this.laneKey = config.laneKey().orElse(null);
+        this.lanes = this.laneKey == null ? null : new ExecutionLanes(this.executor);
+        this.timeouts = config::timeout;
+        this.frames = config.reuseDispatchFrames()
+                ? ThreadLocal.withInitial(() -> DispatchFrame.create(this.indexInput))
+                : null;
     }
 
     @Override
-    public void register(final CommandModule<S> command) {
-        requireNonNull(command, "command cannot be null");
-        if (this.computedChains.containsKey(command)) {
-            throw new IllegalStateException("Command %s has already been registered".formatted(command));
+    public void register(final Collection<CommandModule<S>> commands) {
+        requireNonNull(commands, "commands cannot be null");
+        synchronized (this.registrationLock) {
+            final Map<CommandModule<S>, RegisteredCommand<S>> batch = new LinkedHashMap<>();
+            for (final CommandModule<S> command : commands) {
+                requireNonNull(command, "command cannot be null");
+                if (this.registered.containsKey(command) || batch.containsKey(command)) {
+                    throw new IllegalStateException("Command %s has already been registered".formatted(command));
+                }
+
+                // Compute command chain instance
+                final CommandChain<S> chain = command.chain(this.chainFactory);
+
+                // Skip registration if the handler returns false
+                if (!this.registrationHandler.register(chain)) continue;
+
+                // Compile the chain once, so that dispatching doesn't have to
+                final DispatchPlan<S> plan = DispatchPlan.compile(chain, this.timeouts.apply(chain));
+                batch.put(command, new RegisteredCommand<>(command, plan));
+            }
+
+            // The whole batch is inserted into a single new snapshot
+            this.registry = this.registry.register(batch.values());
+            this.registered.putAll(batch);
         }
+    }
 
-        // Compute command chain instance
-        final CommandChain<S> chain = command.chain(this.chainFactory);
+    @Override
+    public void register(final CommandModule<S> command) {
+        requireNonNull(command, "command cannot be null");
+        register(List.of(command));
+    }
 
-        // Skip registration if the handler returns false
-        if (!this.registrationHandler.register(chain)) return;
+    @Override
+    public void unregister(final Collection<CommandModule<S>> commands) {
+        requireNonNull(commands, "commands cannot be null");
+        synchronized (this.registrationLock) {
+            final Map<CommandModule<S>, RegisteredCommand<S>> batch = new LinkedHashMap<>();
+            for (final CommandModule<S> command : commands) {
+                requireNonNull(command, "command cannot be null");
+                final RegisteredCommand<S> registered = requireRegistered(this.registered.get(command), command);
+
+                // Skip unregistration if the handler returns false
+                if (!this.registrationHandler.unregister(registered.plan().chain())) continue;
+
+                batch.put(command, registered);
+            }
 
-        this.computedChains.put(command, chain);
-        this.commandGraph.insert(chain, command);
+            this.registry = this.registry.unregister(batch.values());
+            this.registered.keySet().removeAll(batch.keySet());
+        }
     }
 
     @Override
     public void unregister(final CommandModule<S> command) {
         requireNonNull(command, "command cannot be null");
+        unregister(List.of(command));
+    }
+
+    @Override
+    public void dispatch(final S source, final String command) throws CommandException {
+        // Share the same path with tryDispatch, then turn rejections into exceptions
+        final DispatchOutcome<S> outcome = tryDispatch(source, command);
+        if (!(outcome instanceof DispatchOutcome.Success<S> || outcome instanceof DispatchOutcome.Cancelled<S>)) {
+            throw toException(outcome);
+        }
+    }
+
+    @Override
+    public boolean isCommand(final String input) {
+        requireNonNull(input, "input cannot be null");
+        final RegistrySnapshot<S> registry = this.registry;
+        if (registry.rootNames().containsFirstWord(input)) return true;
+
+        // Abbreviations aren't part of the name set, the first word has to be resolved
+        return this.matchAbbreviations && registry.commandGraph().isRootAbbreviation(firstWord(input));
+    }
 
-        final CommandChain<S> chain = requireChain(command);
+    private static String firstWord(final String input) {
+        int from = 0;
+        while (from < input.length() && Character.isWhitespace(input.charAt(from))) from++;
 
-        // Skip unregistration if the handler returns false
-        if (!this.registrationHandler.unregister(chain)) return;
+        int to = from;
+        while (to < input.length() && !Character.isWhitespace(input.charAt(to))) to++;
 
-        this.computedChains.remove(command, chain);
-        this.commandGraph.delete(chain);
+        return input.substring(from, to);
     }
 
     @Override
-    public void dispatch(final S source, final String command) throws CommandException {
+    public DispatchOutcome<S> tryDispatch(final S source, final String command) {
+        return executeAndRelease(prepare(source, command, this.registry));
+    }
+
+    @Override
+    public List<DispatchOutcome<S>> dispatchAll(final S source, final List<String> commands, final ExecutionOrder order) {
+        requireNonNull(source, "source cannot be null");
+        requireNonNull(order, "order cannot be null");
+        // Resolve every route against the same snapshot
+        final RegistrySnapshot<S> registry = this.registry;
+        final List<String> batch = List.copyOf(commands);
+        if (order == ExecutionOrder.UNORDERED) {
+            return batch.parallelStream()
+                    .map(x -> executeAndRelease(prepare(source, x, registry)))
+                    .toList();
+        }
+
+        /*
+         * Contexts are parsed on the pool, then executed here, toList hands
+         * them over safely. The slots of the dispatch frames are reused by
+         * the next command parsed on the same thread, so they're detached.
+         */
+        final List<PreparedCommand<S>> prepared = batch.parallelStream()
+                .map(x -> prepare(source, x, registry).detach())
+                .toList();
+        final List<DispatchOutcome<S>> outcomes = new ArrayList<>(prepared.size());
+        for (final PreparedCommand<S> command : prepared) {
+            // Commands parsed early in a large batch might have run out of time by now
+            final boolean timedOut = command.rejected() == null && command.context().expired();
+            outcomes.add(timedOut
+                    ? new DispatchOutcome.TimedOut<>(new CommandTimeoutException())
+                    : execute(command));
+        }
+
+        return outcomes;
+    }
+
+    /*
+     * Executes the command, unless it has been rejected already, then
+     * releases the slot. The dispatch frame stays claimed while the command
+     * is executed. If the command dispatches another command from the same
+     * thread, that one falls back to allocating its own state.
+     */
+    private DispatchOutcome<S> executeAndRelease(final PreparedCommand<S> prepared) {
+        try {
+            return execute(prepared);
+        } finally {
+            prepared.release();
+        }
+    }
+
+    // Executes the command, unless it has been rejected already.
+    private DispatchOutcome<S> execute(final PreparedCommand<S> prepared) {
+        final @Nullable DispatchOutcome<S> rejected = prepared.rejected();
+        if (rejected != null) return rejected;
+
+        final CommandContextImpl<S> context = prepared.context();
+        final @Nullable ExecutionResult<S> executionResult = executeAndInvokeListeners(context, prepared.command());
+        if (executionResult == null) return new DispatchOutcome.Cancelled<>(context);
+
+        return executionResult.successful()
+                ? new DispatchOutcome.Success<>(context)
+                : new DispatchOutcome.ExecutionFailure<>(context, executionResult.asFailed().exception());
+    }
+
+    @Override
+    public ParseTree<S> parse(final S source, final String command) throws CommandException {
+        final PreparedCommand<S> prepared = prepare(source, command, this.registry);
+        try {
+            final @Nullable DispatchOutcome<S> rejected = prepared.rejected();
+            if (rejected != null) throw toException(rejected);
+
+            // The parse result is only valid until the slot is released
+            return prepared.tree(command);
+        } finally {
+            prepared.release();
+        }
+    }
+
+    @Override
+    public CompletableFuture<ExecutionResult<S>> dispatchAsync(final S source, final String command) {
+        // Parse the command on the calling thread, while its dispatch frame can be used
+        final PreparedCommand<S> prepared = prepare(source, command, this.registry);
+        final @Nullable DispatchOutcome<S> rejected = prepared.rejected();
+        final CommandContextImpl<S> context;
+        final CommandModule<S> module;
+        final long timeoutNanos;
+        try {
+            if (rejected != null) return CompletableFuture.failedFuture(toException(rejected));
+
+            context = prepared.context();
+            module = prepared.command();
+            timeoutNanos = prepared.plan().timeoutNanos();
+        } finally {
+            prepared.release();
+        }
+
+        // Resolve the lane first, so that nothing has been scheduled if the key is rejected
+        final @Nullable Object lane = this.laneKey == null
+                ? null
+                : requireNonNull(this.laneKey.apply(source), "lane key cannot be null");
+        final CompletableFuture<ExecutionResult<S>> future = new CompletableFuture<>();
+        // Set by whichever finishes first, the execution or the watchdog
+        final AtomicBoolean settled = new AtomicBoolean();
+        final Runnable task = () -> {
+            try {
+                final ExecutionResult<S> executionResult;
+                // The deadline might have passed while the task was waiting to be executed
+                if (context.expired()) {
+                    executionResult = ExecutionResult.failed(context, new CommandTimeoutException());
+                } else if (!invokePreExecutionListeners(context)) {
+                    // A pre execution listener has cancelled the execution
+                    if (settled.compareAndSet(false, true)) future.cancel(false);
+                    return;
+                } else {
+                    executionResult = execute(context, module);
+                }
+
+                // If the watchdog has won, it has told post execution listeners about the timeout already
+                if (settled.compareAndSet(false, true)) {
+                    invokePostExecutionListeners(executionResult);
+                    future.complete(executionResult);
+                }
+            } catch (final Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        };
+
+        if (timeoutNanos >= 0L) {
+            final Deadline deadline = context.deadline();
+            final ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+                if (!settled.compareAndSet(false, true)) return;
+
+                // Tell the command to stop, but don't wait for it
+                deadline.cancel();
+                future.completeExceptionally(new CommandTimeoutException());
+                /*
+                 * The command might never return, so post execution listeners
+                 * are told about the timeout right away. They're invoked on a
+                 * virtual thread of their own, so that a slow listener can't
+                 * hold up the timeouts of other dispatches, and a stuck
+                 * command can't hold up the listeners on a bounded executor.
+                 */
+                final ExecutionResult<S> timedOut = ExecutionResult.failed(context, new CommandTimeoutException());
+                Thread.startVirtualThread(() -> invokePostExecutionListeners(timedOut));
+            }, deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+            // Don't keep the watchdog (and everything it captures) around after the execution has finished
+            future.whenComplete((x, ex) -> watchdog.cancel(false));
+        }
+
+        try {
+            if (lane == null) {
+                this.executor.execute(task);
+            } else {
+                this.lanes.execute(lane, task);
+            }
+        } catch (final RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+
+        return future;
+    }
+
+    private static ScheduledThreadPoolExecutor createWatchdog() {
+        // The thread is only started once the first timeout is scheduled
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                1,
+                Thread.ofPlatform().name("command-watchdog").daemon().factory()
+        );
+        // Remove cancelled timeouts right away, instead of once they would have expired
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /*
+     * Turns rejections and failed executions into the exceptions dispatch is
+     * expected to throw. Some of them (such as NoSuchCommandException) are
+     * only created here, so stackless mode has to be enabled again.
+     */
+    private CommandException toException(final DispatchOutcome<S> outcome) {
+        if (!this.stacklessExceptions) return createException(outcome);
+
+        final boolean previous = StacklessScope.enter();
+        try {
+            return createException(outcome);
+        } finally {
+            StacklessScope.exit(previous);
+        }
+    }
+
+    private static <S> CommandException createException(final DispatchOutcome<S> outcome) {
+        return switch (outcome) {
+            case DispatchOutcome.Success<S> success -> throw new IllegalArgumentException("Outcome is successful");
+            case DispatchOutcome.Cancelled<S> cancelled -> throw new IllegalArgumentException("Outcome is cancelled");
+            case DispatchOutcome.NoSuchCommand<S> noSuchCommand -> noSuchCommand.toException();
+            case DispatchOutcome.SyntaxError<S> syntaxError -> syntaxError.exception();
+            case DispatchOutcome.MappingError<S> mappingError -> mappingError.exception();
+            case DispatchOutcome.UnfulfilledCondition<S> unfulfilled -> unfulfilled.exception();
+            case DispatchOutcome.TimedOut<S> timedOut -> timedOut.exception();
+            case DispatchOutcome.ExecutionFailure<S> failure -> new CommandExecutionException(failure.exception());
+        };
+    }
+
+    /*
+     * Looks up and parses the provided command, without executing it. The
+     * returned slot holds either the parsed command, or the reason the
+     * command has been rejected. If dispatch frames are reused, the slot is
+     * the one of the frame of the current thread, which stays claimed until
+     * the slot is released. Callers are expected to release it in any case.
+     */
+    private PreparedCommand<S> prepare(final S source, final String command, final RegistrySnapshot<S> registry) {
         requireNonNull(source, "source cannot be null");
         requireNonNull(command, "command cannot be null");
+        final @Nullable DispatchFrame<S> frame = claimFrame(command);
+        if (frame == null) {
+            final PreparedCommand<S> prepared = new PreparedCommand<>(null);
+            prepareScoped(source, wrapInput(command), new CommandParseResultImpl.Builder<>(), registry, prepared);
+            return prepared;
+        }
 
-        final CommandInputTokenizer input = CommandInputTokenizer.wrap(command);
-        final CommandModule<S> cmd = this.commandGraph.query(input);
-        final CommandChain<S> chain = requireChain(cmd);
-        final CommandContext<S> context = createContext(source, chain, ContextInjector.Mode.DISPATCH);
-        // Invoke early (before argument parse) conditions
-        testRequiredConditions(chain, x -> x.testEarly(context));
-        final CommandParseResult<S> parseResult = processCommand(context, input);
-        parseResult.throwCaptured();
+        try {
+            prepareScoped(source, frame.input(), frame.parseResult(), registry, frame.prepared());
+            return frame.prepared();
+        } catch (final Throwable ex) {
+            frame.release();
+            throw ex;
+        }
+    }
+
+    private void prepareScoped(
+            final S source,
+            final CommandInputTokenizer input,
+            final CommandParseResultImpl.Builder<S> builder,
+            final RegistrySnapshot<S> registry,
+            final PreparedCommand<S> prepared
+    ) {
+        if (!this.stacklessExceptions) {
+            prepare(source, input, builder, registry, prepared);
+            return;
+        }
 
-        // Invoke late (after argument parse) conditions
-        testRequiredConditions(chain, x -> x.testLate(context));
-        executeAndInvokeListeners(context, cmd);
+        final boolean previous = StacklessScope.enter();
+        try {
+            prepare(source, input, builder, registry, prepared);
+        } finally {
+            StacklessScope.exit(previous);
+        }
+    }
+
+    private void prepare(
+            final S source,
+            final CommandInputTokenizer input,
+            final CommandParseResultImpl.Builder<S> builder,
+            final RegistrySnapshot<S> registry,
+            final PreparedCommand<S> prepared
+    ) {
+        // If no command is found, the reason is passed to the slot
+        final @Nullable CommandModule<S> cmd = registry.commandGraph().lookup(input, prepared);
+        if (cmd == null) return;
+
+        final RegisteredCommand<S> registered = requireRegistered(cmd);
+        final DispatchPlan<S> plan = registered.plan();
+        final CommandContextImpl<S> context = createContext(source, plan, ContextInjector.Mode.DISPATCH);
+        try {
+            // Invoke early (before argument parse) conditions
+            testRequiredConditions(plan, x -> x.testEarly(context));
+        } catch (final UnfulfilledConditionException ex) {
+            prepared.reject(new DispatchOutcome.UnfulfilledCondition<>(ex));
+            return;
+        }
+
+        final CommandParseResultImpl<S> parseResult = processCommand(context, plan, input, builder);
+        final Optional<CommandException> captured = parseResult.captured(CommandException.class);
+        if (captured.isPresent()) {
+            prepared.reject(rejected(captured.orElseThrow()));
+            return;
+        }
+
+        try {
+            // Invoke late (after argument parse) conditions
+            testRequiredConditions(plan, x -> x.testLate(context));
+        } catch (final UnfulfilledConditionException ex) {
+            prepared.reject(new DispatchOutcome.UnfulfilledCondition<>(ex));
+            return;
+        }
+
+        // Don't even start executing the command, if parsing has taken too long
+        if (context.expired()) {
+            prepared.reject(new DispatchOutcome.TimedOut<>(new CommandTimeoutException()));
+            return;
+        }
+
+        prepared.accept(context, plan, registered.command(), parseResult);
+    }
+
+    // Classifies an exception captured while parsing the arguments of a command.
+    private static <S> DispatchOutcome<S> rejected(final CommandException ex) {
+        if (ex instanceof CommandTimeoutException timedOut) {
+            return new DispatchOutcome.TimedOut<>(timedOut);
+        }
+
+        if (ex instanceof UnfulfilledConditionException unfulfilled) {
+            return new DispatchOutcome.UnfulfilledCondition<>(unfulfilled);
+        }
+
+        // Mapping exceptions are wrapped by consumeArgument
+        if (ex instanceof CommandArgumentException argumentEx && argumentEx.getCause() instanceof ArgumentMappingException) {
+            return new DispatchOutcome.MappingError<>(argumentEx);
+        }
+
+        return new DispatchOutcome.SyntaxError<>(ex);
     }
 
     @Override
     public List<CommandCompletion> complete(final S source, final String command) {
+        return complete(source, command, this.registry);
+    }
+
+    @Override
+    public List<List<CommandCompletion>> completeAll(final S source, final List<String> commands) {
+        requireNonNull(source, "source cannot be null");
+        // Resolve every route against the same snapshot
+        final RegistrySnapshot<S> registry = this.registry;
+        return List.copyOf(commands).parallelStream()
+                .map(x -> complete(source, x, registry))
+                .toList();
+    }
+
+    private List<CommandCompletion> complete(final S source, final String command, final RegistrySnapshot<S> registry) {
         requireNonNull(source, "source cannot be null");
         requireNonNull(command, "command cannot be null");
+        if (!this.stacklessExceptions) return completeFramed(source, command, registry);
 
-        final CommandInputTokenizer input = CommandInputTokenizer.wrap(command);
-        final Tuple2<List<String>, CommandModule<S>> result = this.commandGraph.complete(input);
+        final boolean previous = StacklessScope.enter();
+        try {
+            return completeFramed(source, command, registry);
+        } finally {
+            StacklessScope.exit(previous);
+        }
+    }
+
+    private List<CommandCompletion> completeFramed(final S source, final String command, final RegistrySnapshot<S> registry) {
+        final @Nullable DispatchFrame<S> frame = claimFrame(command);
+        if (frame == null) return complete(source, wrapInput(command), new CommandParseResultImpl.Builder<>(), registry);
+
+        try {
+            return complete(source, frame.input(), frame.parseResult(), registry);
+        } finally {
+            frame.release();
+        }
+    }
+
+    private List<CommandCompletion> complete(
+            final S source,
+            final CommandInputTokenizer input,
+            final CommandParseResultImpl.Builder<S> parseResultBuilder,
+            final RegistrySnapshot<S> registry
+    ) {
+        final Tuple2<List<String>, CommandModule<S>> result = registry.commandGraph().complete(input);
         final Optional<List<String>> completions = result.left();
 
         if (completions.isPresent()) {
@@ -126,20 +557,21 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
                     .filterCompletions();
         }
 
-        final CommandModule<S> cmd = result.right().orElseThrow();
-        final CommandContext<S> context = createContext(source, requireChain(cmd), ContextInjector.Mode.COMPLETE);
-        final CommandParseResult<S> parseResult = processCommand(context, input);
+        final DispatchPlan<S> plan = requireRegistered(result.right().orElseThrow()).plan();
+        final CommandContextImpl<S> context = createContext(source, plan, ContextInjector.Mode.COMPLETE);
+        final CommandParseResult<S> parseResult = processCommand(context, plan, input, parseResultBuilder);
 
         if (
                 parseResult.isComplete()
                 || parseResult.captured(DuplicateFlagException.class).isPresent()
                 || parseResult.captured(FlagGroupException.class).isPresent()
+                || parseResult.captured(CommandTimeoutException.class).isPresent()
                 || parseResult.captured(UnrecognizedFlagException.class).filter(x -> !x.argument().startsWith(SHORT_FLAG_PREFIX)).isPresent()
         ) {
             return List.of();
         }
 
-        return collectCompletions(context, input, parseResult).filterCompletions();
+        return collectCompletions(context, plan, input, parseResult).filterCompletions();
     }
 
     @Override
@@ -162,32 +594,56 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
         this.postExecutionListeners.remove(post);
     }
 
-    private CommandContext<S> createContext(final S source, final CommandChain<S> chain, final ContextInjector.Mode mode) {
-        final CommandContext<S> context = new CommandContextImpl<>(source, chain);
+    // Returns the frame of the current thread, or null, if frames are disabled, or the frame is already in use.
+    private @Nullable DispatchFrame<S> claimFrame(final String command) {
+        if (this.frames == null) return null;
+
+        final DispatchFrame<S> frame = this.frames.get();
+        return frame.claim(command) ? frame : null;
+    }
+
+    private CommandInputTokenizer wrapInput(final String command) {
+        return this.indexInput
+                ? CommandInputTokenizer.indexed(command)
+                : CommandInputTokenizer.wrap(command);
+    }
+
+    private CommandContextImpl<S> createContext(final S source, final DispatchPlan<S> plan, final ContextInjector.Mode mode) {
+        final long timeoutNanos = plan.timeoutNanos();
+        // Untimed dispatches don't need a deadline, unless it's requested
+        final @Nullable Deadline deadline = timeoutNanos < 0L
+                ? null
+                : DeadlineImpl.after(timeoutNanos);
+        final CommandContextImpl<S> context = new CommandContextImpl<>(source, plan, deadline);
         this.contextInjector.injectValues(context, mode);
         return context;
     }
 
-    private CommandChain<S> requireChain(final CommandModule<S> command) {
-        final CommandChain<S> chain = this.computedChains.get(command);
-        if (chain == null) {
-            throw new IllegalStateException("No command chain instance has been computed for command %s".formatted(command));
+    // Returns the graph entry the provided command was found as, along with its plan.
+    private static <S> RegisteredCommand<S> requireRegistered(final CommandModule<S> command) {
+        return requireRegistered(command instanceof RegisteredCommand<S> registered ? registered : null, command);
+    }
+
+    private static <S> RegisteredCommand<S> requireRegistered(final @Nullable RegisteredCommand<S> registered, final CommandModule<S> command) {
+        if (registered == null) {
+            throw new IllegalStateException("No dispatch plan has been compiled for command %s".formatted(command));
         }
 
-        return chain;
+        return registered;
     }
 
-    private void executeAndInvokeListeners(final CommandContext<S> context, final CommandModule<S> command) throws CommandExecutionException {
+    // Returns the result of the execution, or null, if a pre execution listener has cancelled it.
+    private @Nullable ExecutionResult<S> executeAndInvokeListeners(final CommandContext<S> context, final CommandModule<S> command) {
         // If a pre execution listener cancels this execution, return
-        if (!invokePreExecutionListeners(context)) return;
+        if (!invokePreExecutionListeners(context)) return null;
 
         final ExecutionResult<S> result = execute(context, command);
-        // Invoke post execution listeners
-        this.postExecutionListeners.forEach(x -> x.invoke(result));
+        invokePostExecutionListeners(result);
+        return result;
+    }
 
-        if (!result.successful()) {
-            throw new CommandExecutionException(result.asFailed().exception());
-        }
+    private void invokePostExecutionListeners(final ExecutionResult<S> result) {
+        this.postExecutionListeners.forEach(x -> x.invoke(result));
     }
 
     private boolean invokePreExecutionListeners(final CommandContext<S> context) {
@@ -211,44 +667,36 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
 
     // Test conditions of literal and required arguments
     private static <S> void testRequiredConditions(
-            final CommandChain<S> chain,
+            final DispatchPlan<S> plan,
             final CheckedConsumer<CommandCondition<S>, UnfulfilledConditionException> action
     ) throws UnfulfilledConditionException {
-        final List<CommandCondition<S>> conditions = Stream.concat(chain.route().stream(), chain.arguments().stream())
-                .map(CommandArgument::condition)
-                .filter(Optional::isPresent)
-                .map(Optional::orElseThrow)
-                .toList();
-
-        for (final CommandCondition<S> condition : conditions) action.accept(condition);
+        for (final CommandCondition<S> condition : plan.conditions()) action.accept(condition);
     }
 
-    private static <S> CommandParseResult<S> processCommand(final CommandContext<S> context, final CommandInputTokenizer input) {
-        final CommandChain<S> chain = context.chain();
-        final CommandParseResult.Builder<S> builder = CommandParseResult.createBuilder(chain);
+    /*
+     * Parses the arguments of the command, using the provided builder. The
+     * returned parse result shares the state of the builder, so it's only
+     * valid until the builder is reset.
+     */
+    private static <S> CommandParseResultImpl<S> processCommand(
+            final CommandContextImpl<S> context,
+            final DispatchPlan<S> plan,
+            final CommandInputTokenizer input,
+            final CommandParseResultImpl.Builder<S> builder
+    ) {
+        final CommandChain<S> chain = plan.chain();
+        builder.reset(chain.arguments(), chain.flags());
         try {
             while (input.canReadNonWhitespace()) {
+                context.throwIfExpired();
                 final String arg = input.peekWord();
-                // Attempt to parse arg into a single flag or a group of flags
-                final Tuple2<List<CommandArgument.Flag<S, ?>>, Supplier<CommandArgumentException>> flagResult = parseFlagGroup(arg, input, chain);
-                if (flagResult.right().isPresent()) {
-                    /*
-                     * We do this to stay consistent with the rest of the library. If an
-                     * argument is inspected and was found to be incorrect, we remove it
-                     * from the remaining argument list.
-                     */
-                    input.readWord();
-                    throw flagResult.right().orElseThrow().get();
-                }
-
-                final List<CommandArgument.Flag<S, ?>> flags = flagResult.left().orElseThrow();
-                // If the list is not empty, we managed to parse at least one flag
-                if (flags.isEmpty()) {
+                // Check whether arg is a single flag or a group of flags
+                if (!isFlagExpression(arg, input, plan)) {
                     // No flags were matched, we retrieve the first unseen
                     // required argument.
-                    final Optional<CommandArgument.Required<S, ?>> required = firstUnseen(chain.arguments(), context);
-                    if (required.isPresent()) {
-                        consumeArgument(required.orElseThrow(), context, input, builder);
+                    final int required = firstUnseenArgument(plan, context);
+                    if (required != -1) {
+                        consumeArgument(plan.arguments()[required], required, plan.argumentSlot(required), wordStart(input), context, input, builder);
                     } else {
                         /*
                          * At this point, we need to throw an exception to indicate to the
@@ -262,53 +710,101 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
                          *    because we can't handle more arguments.
                          */
                         input.readWord(); // Consume the current argument to be inline with the rest of the code
-                        throw firstUnseen(chain.flags(), context).isPresent()
+                        throw hasUnseenFlag(plan, context)
                                 ? input.internal().gen(arg, UnrecognizedFlagException::new)
                                 : new CommandSyntaxException(chain, CommandSyntaxException.Reason.TOO_MANY_ARGUMENTS);
                     }
 
                 } else {
                     // Get rid of the flag expression itself
+                    final int from = wordStart(input);
                     input.readWord();
                     // Parse each flag argument
-                    for (final CommandArgument.Flag<S, ?> flag : flags) consumeFlag(flag, arg, context, input, builder);
+                    if (arg.charAt(1) == SHORT_FLAG_PREFIX_CH) {
+                        consumeFlag(plan, plan.flagIndex(arg), arg, from, context, input, builder);
+                    } else {
+                        for (int i = 1; i < arg.length(); i++) consumeFlag(plan, plan.flagIndex(arg.charAt(i)), arg, from, context, input, builder);
+                    }
                 }
             }
 
-            verifyRequiredArguments(context, chain);
+            verifyRequiredArguments(context, plan);
         } catch (final CommandException ex) {
             builder.capture(ex);
         }
 
-        return builder.build();
+        return builder.view();
     }
 
-    private static <S> void verifyRequiredArguments(final CommandContext<S> context, final CommandChain<S> chain) throws CommandSyntaxException {
+    // Returns the position of the next word of the input.
+    private static int wordStart(final CommandInputTokenizer input) {
+        return skipWhitespace(input.input(), input.cursor());
+    }
+
+    static int skipWhitespace(final String input, final int from) {
+        int cursor = from;
+        while (cursor < input.length() && Character.isWhitespace(input.charAt(cursor))) cursor++;
+        return cursor;
+    }
+
+    private static <S> void verifyRequiredArguments(final CommandContextImpl<S> context, final DispatchPlan<S> plan) throws CommandSyntaxException {
         /*
          * Verify that all non-flag arguments have been parsed. The reason we
          * only check non-flags is that flags are optional, so omitting them
          * is perfectly valid.
          */
-        if (firstUnseen(chain.arguments(), context).isPresent()) {
-            throw new CommandSyntaxException(chain, CommandSyntaxException.Reason.TOO_FEW_ARGUMENTS);
+        if (firstUnseenArgument(plan, context) != -1) {
+            throw new CommandSyntaxException(plan.chain(), CommandSyntaxException.Reason.TOO_FEW_ARGUMENTS);
         }
     }
 
-    private static <S, C extends CommandArgument.Dynamic<S, ?>> Optional<C> firstUnseen(
-            final List<C> arguments,
-            final CommandContext<S> context
-    ) {
-        return arguments.stream().filter(x -> !context.has(x.key())).findFirst();
+    // Returns the index of the first required argument without a value, or -1, if there's none.
+    private static <S> int firstUnseenArgument(final DispatchPlan<S> plan, final CommandContextImpl<S> context) {
+        if (plan.packed()) return context.firstAbsent(0, plan.arguments().length);
+
+        for (int i = 0; i < plan.arguments().length; i++) {
+            if (!context.has(plan.argumentSlot(i))) return i;
+        }
+
+        return -1;
+    }
+
+    private static <S> boolean hasUnseenFlag(final DispatchPlan<S> plan, final CommandContextImpl<S> context) {
+        if (plan.packed()) {
+            final int from = plan.arguments().length;
+            return context.firstAbsent(from, from + plan.flags().length) != -1;
+        }
+
+        for (int i = 0; i < plan.flags().length; i++) {
+            if (!context.has(plan.flagSlot(i))) return true;
+        }
+
+        return false;
+    }
+
+    private static <S> void consumeFlag(
+            final DispatchPlan<S> plan,
+            final int index,
+            final String expression,
+            final int from,
+            final CommandContextImpl<S> context,
+            final CommandInputTokenizer input,
+            final CommandParseResultImpl.Builder<S> builder
+    ) throws CommandException {
+        consumeFlag(plan.flags()[index], plan.arguments().length + index, plan.flagSlot(index), expression, from, context, input, builder);
     }
 
     private static <S, T> void consumeFlag(
             final CommandArgument.Flag<S, T> flag,
+            final int position,
+            final int slot,
             final String expression,
-            final CommandContext<S> context,
+            final int from,
+            final CommandContextImpl<S> context,
             final CommandInputTokenizer input,
-            final CommandParseResult.Builder<S> builder
+            final CommandParseResultImpl.Builder<S> builder
     ) throws CommandException {
-        if (context.has(flag.key())) {
+        if (context.has(slot)) {
             throw input.internal().gen(expression, DuplicateFlagException::new);
         }
 
@@ -322,48 +818,56 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
             condition.orElseThrow().testLate(context);
         }
 
-        consumeArgument(flag, context, input, builder);
+        consumeArgument(flag, position, slot, from, context, input, builder);
     }
 
     private static <S, T> void consumeArgument(
             final CommandArgument.Dynamic<S, T> argument,
-            final CommandContext<S> context,
+            final int position,
+            final int slot,
+            final int from,
+            final CommandContextImpl<S> context,
             final CommandInputTokenizer input,
-            final CommandParseResult.Builder<S> builder
+            final CommandParseResultImpl.Builder<S> builder
     ) throws CommandException {
         try {
             // 1) Mark beginning
-            builder.begin(argument);
+            builder.begin(argument, position);
             // 2) Map argument into the correct type. This will throw an exception if
             //    the conversion fails.
             final T result = argument.mapper().tryMap(context, input);
             // 3) Store the result in the current context
-            context.store(argument.key(), result);
+            context.store(slot, argument.key(), result);
+            builder.span(position, from, input.cursor());
             // 4) Mark end
             if (input.canRead()) builder.end();
         } catch (final ArgumentMappingException ex) {
-          throw input.internal().gen(
-                  input.lastConsumed().orElseThrow(),
-                  (consumed, arg, remaining) -> new CommandArgumentException(ex, consumed, arg, remaining)
-          );
+            // Mappers are expected to give up once the deadline has passed, report that instead
+            context.throwIfExpired();
+            throw input.internal().gen(
+                    input.lastConsumed().orElseThrow(),
+                    (in, cursor, arg) -> new CommandArgumentException(ex, in, cursor, arg)
+            );
         } catch (final MissingInputException ex) {
             throw new CommandSyntaxException(context.chain(), CommandSyntaxException.Reason.TOO_FEW_ARGUMENTS);
         }
     }
 
-    private static <S> Tuple2<List<CommandArgument.Flag<S, ?>>, Supplier<CommandArgumentException>> parseFlagGroup(
+    /*
+     * Checks whether the provided expression is a single flag or a group of
+     * flags, walking it in place. If it looks like one, but it's not valid,
+     * the expression is consumed, and an exception is thrown.
+     */
+    private static <S> boolean isFlagExpression(
             final String expression,
             final CommandInputTokenizer input,
-            final CommandChain<S> chain
-    ) {
-        final List<CommandArgument.Flag<S, ?>> candidates = chain.flags()
-                .stream()
-                .toList();
+            final DispatchPlan<S> plan
+    ) throws CommandException {
         /*
          * If the expression isn't even 2 characters long or doesn't start with
          * '-', it's not a flag group.
          */
-        if (expression.length() < 2 || expression.charAt(0) != SHORT_FLAG_PREFIX_CH) return new Tuple2<>(List.of(), null);
+        if (expression.length() < 2 || expression.charAt(0) != SHORT_FLAG_PREFIX_CH) return false;
 
         /*
          * This means the expression is prefixed with '--' , it's either a long
@@ -371,72 +875,62 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
          */
         if (expression.charAt(1) == SHORT_FLAG_PREFIX_CH) {
             // The expression is literally '--' , which is not a valid flag group, returning.
-            if (expression.length() == 2) return new Tuple2<>(List.of(), null);
+            if (expression.length() == 2) return false;
 
-            // Long flag name, extract it
-            final String flagName = expression.substring(2);
-            // Attempt to find a flag with the extracted name. Return unrecognized flag
+            // Attempt to find a flag with the provided name. Throw unrecognized flag
             // exception, if none was found.
-            final Optional<CommandArgument.Flag<S, ?>> candidate = candidates.stream()
-                    .filter(x -> x.name().equals(flagName))
-                    .findFirst();
-
-            return candidate.isPresent()
-                    ? new Tuple2<>(List.of(candidate.orElseThrow()), null)
-                    : new Tuple2<>(null, () -> input.internal().gen(expression,
-                            (consumed, arg, remaining) -> new UnrecognizedFlagException(consumed, arg, remaining, flagName)
-                    )
+            if (plan.flagIndex(expression) != -1) return true;
+
+            /*
+             * We do this to stay consistent with the rest of the library. If an
+             * argument is inspected and was found to be incorrect, we remove it
+             * from the remaining argument list.
+             */
+            input.readWord();
+            final String flagName = expression.substring(2);
+            throw input.internal().gen(expression,
+                    (in, cursor, arg) -> new UnrecognizedFlagException(in, cursor, arg, flagName, plan.flagSuggestionIndex())
             );
-        } else {
-            // We either have a single shorthand or a group of shorthands.
-            final char[] shorthands = expression.substring(1).toCharArray();
-            final boolean isGroup = shorthands.length > 1;
-            final List<CommandArgument.Flag<S, ?>> flags = new ArrayList<>();
-
-            // Find flags by their shorthands
-            for (char c : shorthands) {
-                /*
-                 * Flag shorthands are expected to be alphabetic. If this
-                 * argument is not, it isn't a flag shorthand either, thus
-                 * we return an empty optional, otherwise we could run into
-                 * a problem of trying to interpret negative numbers as
-                 * flag shorthands for instance.
-                 */
-                if (!Character.isAlphabetic(c)) return new Tuple2<>(List.of(), null);
-
-                final Optional<CommandArgument.Flag<S, ?>> candidate = candidates.stream()
-                        .filter(x -> x.shorthand() == c)
-                        .findFirst();
-
-                if (candidate.isPresent()) {
-                    final CommandArgument.Flag<S, ?> flag = candidate.orElseThrow();
-                    // Value flags aren't supported in flag groups
-                    if (isGroup && !flag.isBool()) {
-                        final Supplier<CommandArgumentException> ex = () -> input.internal().gen(
-                                expression,
-                                (consumed, arg, remaining) -> new FlagGroupException(consumed, arg, remaining, c)
-                        );
-
-                        return new Tuple2<>(null, ex);
-                    }
+        }
 
-                    flags.add(flag);
-                } else {
-                    // Return an error if an incorrect shorthand was provided
-                    final Supplier<CommandArgumentException> ex = () -> input.internal().gen(
-                            expression,
-                            (consumed, arg, remaining) -> new UnrecognizedFlagException(consumed, arg, remaining, String.valueOf(c))
-                    );
-                    return new Tuple2<>(null, ex);
-                }
+        // We either have a single shorthand or a group of shorthands.
+        final boolean isGroup = expression.length() > 2;
+        // Find flags by their shorthands
+        for (int i = 1; i < expression.length(); i++) {
+            final char c = expression.charAt(i);
+            /*
+             * Flag shorthands are expected to be alphabetic. If this
+             * argument is not, it isn't a flag shorthand either, thus
+             * we return false, otherwise we could run into a problem
+             * of trying to interpret negative numbers as flag
+             * shorthands for instance.
+             */
+            if (!Character.isAlphabetic(c)) return false;
+
+            final int index = plan.flagIndex(c);
+            if (index == -1) {
+                // Throw an error if an incorrect shorthand was provided
+                input.readWord();
+                throw input.internal().gen(expression,
+                        (in, cursor, arg) -> new UnrecognizedFlagException(in, cursor, arg, String.valueOf(c))
+                );
             }
 
-            return new Tuple2<>(List.copyOf(flags), null);
+            // Value flags aren't supported in flag groups
+            if (isGroup && !plan.flags()[index].isBool()) {
+                input.readWord();
+                throw input.internal().gen(expression,
+                        (in, cursor, arg) -> new FlagGroupException(in, cursor, arg, c)
+                );
+            }
         }
+
+        return true;
     }
 
     private CompletionAccumulator collectCompletions(
             final CommandContext<S> context,
+            final DispatchPlan<S> plan,
             final CommandInputTokenizer input,
             final CommandParseResult<S> parseResult
     ) {
@@ -450,19 +944,20 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
         final CompletionBuilder builder = CompletionBuilder.of(this.completionFactory, argToComplete);
 
         return argument.isFlag()
-                ? collectFlagCompletions(context, parseResult, argument.asFlag(), completeNext, builder)
-                : collectArgumentCompletions(context, parseResult, argument, builder);
+                ? collectFlagCompletions(context, plan, parseResult, argument.asFlag(), completeNext, builder)
+                : collectArgumentCompletions(context, plan, parseResult, argument, builder);
     }
 
     private CompletionAccumulator collectFlagCompletions(
             final CommandContext<S> context,
+            final DispatchPlan<S> plan,
             final CommandParseResult<S> parseResult,
             final CommandArgument.Flag<S, ?> argument,
             final boolean completeNext,
             final CompletionBuilder builder
     ) {
         final boolean includeFlagNames = argument.isBool() || !completeNext || parseResult.lastArgument().isEmpty();
-        if (includeFlagNames) includeFlags(context, parseResult, builder);
+        if (includeFlagNames) includeFlags(plan, parseResult, builder);
 
         return argument.isBool()
                 ? builder.build()
@@ -471,22 +966,23 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
 
     private CompletionAccumulator collectArgumentCompletions(
             final CommandContext<S> context,
+            final DispatchPlan<S> plan,
             final CommandParseResult<S> parseResult,
             final CommandArgument.Dynamic<S, ?> argument,
             final CompletionBuilder builder
     ) {
         final boolean includeFlags = this.eagerFlagCompletions || builder.input().startsWith(SHORT_FLAG_PREFIX);
-        return argument.mapper().complete(context, includeFlags ? includeFlags(context, parseResult, builder) : builder);
+        return argument.mapper().complete(context, includeFlags ? includeFlags(plan, parseResult, builder) : builder);
     }
 
     private CompletionBuilder includeFlags(
-            final CommandContext<S> context,
+            final DispatchPlan<S> plan,
             final CommandParseResult<S> parseResult,
             final CompletionBuilder builder
     ) {
         final List<CommandArgument.Flag<S, ?>> remainingFlags = parseResult.remainingFlags();
         return builder.includeStrings(completeFlags(remainingFlags))
-                .includeStrings(completeFlagGroup(context, builder.input(), remainingFlags));
+                .includeStrings(completeFlagGroup(plan, builder.input(), remainingFlags));
     }
 
     private CommandArgument.Dynamic<S, ?> resolveArgumentToComplete(final CommandParseResult<S> parseResult) {
@@ -522,17 +1018,16 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
     }
 
     private static <S> List<String> completeFlagGroup(
-            final CommandContext<S> context,
+            final DispatchPlan<S> plan,
             final String argument,
             final List<CommandArgument.Flag<S, ?>> flags
     ) {
         final List<String> result = new ArrayList<>();
-        final List<CommandArgument.Flag<S, ?>> allFlags = context.chain().flags();
         // If charAt(1) is not alphabetic, this is not a flag group. This is to prevent
         // interpreting flag names (--flag-name) as flag groups.
         if (argument.length() > 1 && argument.charAt(0) == SHORT_FLAG_PREFIX_CH && Character.isAlphabetic(argument.charAt(1))) {
             for (int i = 1; i < argument.length(); i++) {
-                if (isInvalidShorthand(argument.charAt(i), allFlags)) {
+                if (plan.flagIndex(argument.charAt(i)) == -1) {
                     return List.of();
                 }
             }
@@ -552,12 +1047,4 @@ final class CommandDispatcherImpl<S> implements CommandDispatcher<S> {
 
         return result;
     }
-
-    private static <S> boolean isInvalidShorthand(final char shorthand, final List<CommandArgument.Flag<S, ?>> flags) {
-        for (final CommandArgument.Flag<S, ?> flag : flags) {
-            if (flag.shorthand() == shorthand) return false;
-        }
-
-        return true;
-    }
 }
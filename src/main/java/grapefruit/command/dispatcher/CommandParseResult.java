@@ -4,7 +4,6 @@ import grapefruit.command.CommandException;
 import grapefruit.command.argument.CommandArgument;
 import grapefruit.command.argument.CommandChain;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,8 +31,7 @@ public interface CommandParseResult<S> {
     boolean isComplete();
 
     static <S> Builder<S> createBuilder(final CommandChain<S> chain) {
-        // Make mutable copies
-        return new CommandParseResultImpl.Builder<>(new ArrayList<>(chain.arguments()), new ArrayList<>(chain.flags()));
+        return new CommandParseResultImpl.Builder<>(chain.arguments(), chain.flags());
     }
 
     interface Builder<S> {
@@ -5,27 +5,42 @@ import grapefruit.command.argument.CommandArgument;
 import grapefruit.command.util.ToStringer;
 import org.jspecify.annotations.Nullable;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
 
+/*
+ * Consumed arguments and flags are tracked by their position in the chain,
+ * required arguments first, then flags. Remaining arguments and flags are
+ * exposed as views of the chain's lists, filtered by the consumed bits.
+ */
 final class CommandParseResultImpl<S> implements CommandParseResult<S> {
     private final CommandArgument.@Nullable Dynamic<S, ?> argument;
     private final @Nullable CommandException ex;
     private final List<CommandArgument.Required<S, ?>> arguments;
     private final List<CommandArgument.Flag<S, ?>> flags;
+    private final long[] consumed;
+    // The start and end of the input each argument has been mapped from, by position, or -1
+    private final int[] spans;
 
     private CommandParseResultImpl(
             final CommandArgument.@Nullable Dynamic<S, ?> argument,
             final @Nullable CommandException ex,
             final List<CommandArgument.Required<S, ?>> arguments,
-            final List<CommandArgument.Flag<S, ?>> flags
+            final List<CommandArgument.Flag<S, ?>> flags,
+            final long[] consumed,
+            final int[] spans
     ) {
         this.argument = argument;
         this.ex = ex;
         this.arguments = requireNonNull(arguments, "arguments cannot be null");
         this.flags = requireNonNull(flags, "flags cannot be null");
+        this.consumed = requireNonNull(consumed, "consumed cannot be null");
+        this.spans = requireNonNull(spans, "spans cannot be null");
     }
 
     @Override
@@ -48,49 +63,148 @@ final class CommandParseResultImpl<S> implements CommandParseResult<S> {
 
     @Override
     public List<CommandArgument.Required<S, ?>> remainingArguments() {
-        return List.copyOf(this.arguments);
+        return new Remaining<>(this.arguments, this.consumed, 0);
     }
 
     @Override
     public List<CommandArgument.Flag<S, ?>> remainingFlags() {
-        return List.copyOf(this.flags);
+        return new Remaining<>(this.flags, this.consumed, this.arguments.size());
     }
 
     @Override
     public boolean isComplete() {
-        return this.arguments.isEmpty() && this.flags.isEmpty();
+        return BitMask.nextClear(this.consumed, 0, this.arguments.size() + this.flags.size()) == -1;
+    }
+
+    // Returns the start of the input the argument at the provided position has been mapped from, or -1.
+    int spanStart(final int position) {
+        return this.spans[position * 2];
+    }
+
+    // Returns the end of the input the argument at the provided position has been mapped from, or -1.
+    int spanEnd(final int position) {
+        return this.spans[position * 2 + 1];
     }
 
     @Override
     public String toString() {
         return ToStringer.create(this)
                 .append("lastArgument", this.argument)
-                .append("remainingArguments", this.arguments)
-                .append("remainingFlags", this.flags)
+                .append("remainingArguments", remainingArguments())
+                .append("remainingFlags", remainingFlags())
                 .toString();
     }
 
+    // An unmodifiable view of the elements of a list, whose bits are clear.
+    private static final class Remaining<T> extends AbstractList<T> {
+        private static final int[] NONE = new int[0];
+        private final List<T> elements;
+        // Indices of the remaining elements, computed once, so that get is constant time
+        private final int[] indices;
+
+        private Remaining(final List<T> elements, final long[] consumed, final int offset) {
+            this.elements = elements;
+            final int end = offset + elements.size();
+            final int size = BitMask.countClear(consumed, offset, end);
+            this.indices = size == 0 ? NONE : new int[size];
+            int position = BitMask.nextClear(consumed, offset, end);
+            for (int i = 0; i < size; i++) {
+                this.indices[i] = position - offset;
+                position = BitMask.nextClear(consumed, position + 1, end);
+            }
+        }
+
+        @Override
+        public T get(final int index) {
+            Objects.checkIndex(index, this.indices.length);
+            return this.elements.get(this.indices[index]);
+        }
+
+        @Override
+        public int size() {
+            return this.indices.length;
+        }
+    }
+
+    /*
+     * Builders can be reset, and reused for the next chain. The arrays are
+     * only reallocated, if the next chain has more arguments and flags than
+     * any of the previous ones.
+     */
     static final class Builder<S> implements CommandParseResult.Builder<S> {
-        private final List<CommandArgument.Required<S, ?>> arguments;
-        private final List<CommandArgument.Flag<S, ?>> flags;
-        private CommandArgument.Dynamic<S, ?> argument;
-        private CommandException capturedException;
+        private static final long[] NO_WORDS = new long[0];
+        private static final int[] NO_SPANS = new int[0];
+        private List<CommandArgument.Required<S, ?>> arguments = List.of();
+        private List<CommandArgument.Flag<S, ?>> flags = List.of();
+        private long[] consumed = NO_WORDS;
+        private int[] spans = NO_SPANS;
+        private CommandArgument.@Nullable Dynamic<S, ?> argument;
+        // Position of the current argument, or -1, if it isn't part of the chain
+        private int position = -1;
+        private @Nullable CommandException capturedException;
+
+        Builder() {}
 
         Builder(final List<CommandArgument.Required<S, ?>> arguments, final List<CommandArgument.Flag<S, ?>> flags) {
+            reset(arguments, flags);
+        }
+
+        // Discards everything recorded so far, and starts over with the provided arguments and flags.
+        void reset(final List<CommandArgument.Required<S, ?>> arguments, final List<CommandArgument.Flag<S, ?>> flags) {
             this.arguments = requireNonNull(arguments, "arguments cannot be null");
             this.flags = requireNonNull(flags, "flags cannot be null");
+            final int size = arguments.size() + flags.size();
+            final int words = (size + 63) >>> 6;
+            if (this.consumed.length < words) {
+                this.consumed = BitMask.create(size);
+            } else {
+                Arrays.fill(this.consumed, 0, words, 0L);
+            }
+
+            if (this.spans.length < size * 2) this.spans = new int[size * 2];
+            Arrays.fill(this.spans, 0, size * 2, -1);
+            this.argument = null;
+            this.position = -1;
+            this.capturedException = null;
         }
 
         @Override
         public void begin(final CommandArgument.Dynamic<S, ?> argument) {
             requireNonNull(argument, "argument cannot be null");
-            this.argument = argument;
+            final int position = argument.isFlag()
+                    ? indexOf(this.flags, argument, this.arguments.size())
+                    : indexOf(this.arguments, argument, 0);
+            begin(argument, position);
+        }
+
+        /*
+         * Same as begin(CommandArgument.Dynamic), but the position of the
+         * argument in the chain is supplied by the caller, so it doesn't have
+         * to be looked up.
+         */
+        void begin(final CommandArgument.Dynamic<S, ?> argument, final int position) {
+            this.argument = requireNonNull(argument, "argument cannot be null");
+            this.position = position;
+        }
+
+        private static int indexOf(final List<?> elements, final Object element, final int offset) {
+            final int index = elements.indexOf(element);
+            return index == -1 ? -1 : offset + index;
         }
 
         @Override
         public void end() {
-            if (this.argument != null) (this.argument.isFlag() ? this.flags : this.arguments).remove(this.argument);
+            if (this.argument != null && this.position != -1) BitMask.set(this.consumed, this.position);
             this.argument = null;
+            this.position = -1;
+        }
+
+        // Records the part of the input the argument at the provided position has been mapped from.
+        void span(final int position, final int from, final int to) {
+            if (position == -1) return;
+
+            this.spans[position * 2] = from;
+            this.spans[position * 2 + 1] = to;
         }
 
         @Override
@@ -99,8 +213,25 @@ final class CommandParseResultImpl<S> implements CommandParseResult<S> {
         }
 
         @Override
-        public CommandParseResult<S> build() {
-            return new CommandParseResultImpl<>(this.argument, this.capturedException, this.arguments, this.flags);
+        public CommandParseResultImpl<S> build() {
+            final int size = this.arguments.size() + this.flags.size();
+            return new CommandParseResultImpl<>(
+                    this.argument,
+                    this.capturedException,
+                    this.arguments,
+                    this.flags,
+                    Arrays.copyOf(this.consumed, (size + 63) >>> 6),
+                    Arrays.copyOf(this.spans, size * 2)
+            );
+        }
+
+        /*
+         * Same as build, but the result shares the state of this builder,
+         * instead of copying it. It's only valid until this builder is
+         * modified or reset.
+         */
+        CommandParseResultImpl<S> view() {
+            return new CommandParseResultImpl<>(this.argument, this.capturedException, this.arguments, this.flags, this.consumed, this.spans);
         }
     }
 }
@@ -0,0 +1,14 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.CommandException;
+
+import java.io.Serial;
+
+public class CommandTimeoutException extends CommandException {
+    @Serial
+    private static final long serialVersionUID = 2871602411378262519L;
+
+    public CommandTimeoutException() {
+        super();
+    }
+}
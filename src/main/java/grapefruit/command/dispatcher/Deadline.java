@@ -0,0 +1,43 @@
+package grapefruit.command.dispatcher;
+
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * The deadline of a single dispatch, doubling as a cancellation token.
+ * Argument mappers, conditions and commands are expected to check it every
+ * now and then while doing something slow, and give up once it has expired.
+ */
+public interface Deadline {
+
+    /*
+     * Whether the deadline has passed, or it has been cancelled.
+     */
+    boolean expired();
+
+    /*
+     * The time left until the deadline passes. Zero, if it has expired
+     * already.
+     */
+    Duration remaining();
+
+    /*
+     * Marks the deadline expired, regardless of how much time is left.
+     */
+    void cancel();
+
+    default void throwIfExpired() throws CommandTimeoutException {
+        if (expired()) throw new CommandTimeoutException();
+    }
+
+    // Creates a deadline that never passes by itself, but can still be cancelled.
+    static Deadline none() {
+        return new DeadlineImpl(0L, false);
+    }
+
+    static Deadline after(final Duration timeout) {
+        requireNonNull(timeout, "timeout cannot be null");
+        return DeadlineImpl.after(timeout.toNanos());
+    }
+}
@@ -0,0 +1,51 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.util.ToStringer;
+
+import java.time.Duration;
+
+final class DeadlineImpl implements Deadline {
+    // The value of System#nanoTime at which the deadline passes, only meaningful if bounded is true
+    private final long deadline;
+    private final boolean bounded;
+    private volatile boolean cancelled;
+
+    DeadlineImpl(final long deadline, final boolean bounded) {
+        this.deadline = deadline;
+        this.bounded = bounded;
+    }
+
+    static DeadlineImpl after(final long timeoutNanos) {
+        if (timeoutNanos < 0L) {
+            throw new IllegalArgumentException("Timeout cannot be negative");
+        }
+
+        return new DeadlineImpl(System.nanoTime() + timeoutNanos, true);
+    }
+
+    @Override
+    public boolean expired() {
+        return this.cancelled || (this.bounded && System.nanoTime() - this.deadline >= 0L);
+    }
+
+    @Override
+    public Duration remaining() {
+        if (this.cancelled) return Duration.ZERO;
+        if (!this.bounded) return Duration.ofNanos(Long.MAX_VALUE);
+
+        return Duration.ofNanos(Math.max(0L, this.deadline - System.nanoTime()));
+    }
+
+    @Override
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("remaining", remaining())
+                .append("cancelled", this.cancelled)
+                .toString();
+    }
+}
@@ -0,0 +1,72 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.dispatcher.input.CommandInputTokenizer;
+import grapefruit.command.util.ToStringer;
+
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * Per-thread state, that can be reused from one dispatch (or completion) to
+ * the next, instead of being allocated over and over again: the tokenizer,
+ * the state of the parse result, and the slot the prepared command is
+ * returned in. Contexts are not part of it, because they are handed over to
+ * commands and execution listeners, which are free to keep them around.
+ */
+final class DispatchFrame<S> {
+    private final CommandInputTokenizer input;
+    private final CommandParseResultImpl.Builder<S> parseResult = new CommandParseResultImpl.Builder<>();
+    private final PreparedCommand<S> prepared;
+    private boolean inUse;
+
+    private DispatchFrame(final CommandInputTokenizer input) {
+        this.input = requireNonNull(input, "input cannot be null");
+        this.prepared = new PreparedCommand<>(this);
+    }
+
+    static <S> DispatchFrame<S> create(final boolean indexInput) {
+        return new DispatchFrame<>(indexInput ? CommandInputTokenizer.indexed("") : CommandInputTokenizer.wrap(""));
+    }
+
+    /*
+     * Claims this frame, and resets it to read the provided input. Returns
+     * false, if the frame is already in use, which happens, if a command
+     * dispatches another command from the same thread. Callers are expected
+     * to fall back to a new tokenizer in that case.
+     */
+    boolean claim(final String command) {
+        if (this.inUse) return false;
+
+        this.inUse = true;
+        this.input.internal().reset(command);
+        return true;
+    }
+
+    void release() {
+        // Don't hold on to the last input, command, or context
+        this.input.internal().reset("");
+        this.parseResult.reset(List.of(), List.of());
+        this.prepared.clear();
+        this.inUse = false;
+    }
+
+    CommandInputTokenizer input() {
+        return this.input;
+    }
+
+    CommandParseResultImpl.Builder<S> parseResult() {
+        return this.parseResult;
+    }
+
+    PreparedCommand<S> prepared() {
+        return this.prepared;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("inUse", this.inUse)
+                .toString();
+    }
+}
@@ -0,0 +1,152 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.CommandException;
+import grapefruit.command.argument.CommandArgumentException;
+import grapefruit.command.argument.condition.UnfulfilledConditionException;
+import grapefruit.command.tree.NoSuchCommandException;
+import grapefruit.command.tree.node.CommandNode;
+import grapefruit.command.util.BKTree;
+import grapefruit.command.util.ToStringer;
+
+import java.util.List;
+import java.util.Set;
+
+import static grapefruit.command.util.StringUtil.fold;
+import static java.util.Objects.requireNonNull;
+
+/*
+ * The outcome of CommandDispatcher#tryDispatch. Rejected inputs are reported
+ * as values instead of being thrown.
+ */
+public sealed interface DispatchOutcome<S> {
+
+    default boolean successful() {
+        return this instanceof Success<S>;
+    }
+
+    // The command has been executed successfully.
+    record Success<S>(CommandContext<S> context) implements DispatchOutcome<S> {
+        public Success {
+            requireNonNull(context, "context cannot be null");
+        }
+    }
+
+    // A pre execution listener has cancelled the execution of the command.
+    record Cancelled<S>(CommandContext<S> context) implements DispatchOutcome<S> {
+        public Cancelled {
+            requireNonNull(context, "context cannot be null");
+        }
+    }
+
+    /*
+     * The input doesn't match any of the registered commands. Just like with
+     * CommandArgumentException, the consumed and remaining parts of the input
+     * are only created when they're accessed. Unlike the rest of the
+     * outcomes, this isn't a record, so that the suggestion index (mapping
+     * the folded names and aliases of the alternatives to the alternatives)
+     * stays an implementation detail.
+     */
+    final class NoSuchCommand<S> implements DispatchOutcome<S> {
+        private final String input;
+        private final int cursor;
+        private final String argument;
+        private final Set<CommandNode> alternatives;
+        private final BKTree<CommandNode> suggestionIndex;
+
+        public NoSuchCommand(
+                final String input,
+                final int cursor,
+                final String argument,
+                final Set<CommandNode> alternatives,
+                final BKTree<CommandNode> suggestionIndex
+        ) {
+            this.input = requireNonNull(input, "input cannot be null");
+            this.cursor = cursor;
+            this.argument = requireNonNull(argument, "argument cannot be null");
+            this.alternatives = Set.copyOf(requireNonNull(alternatives, "alternatives cannot be null"));
+            this.suggestionIndex = requireNonNull(suggestionIndex, "suggestionIndex cannot be null");
+        }
+
+        public String input() {
+            return this.input;
+        }
+
+        public int cursor() {
+            return this.cursor;
+        }
+
+        public String argument() {
+            return this.argument;
+        }
+
+        public Set<CommandNode> alternatives() {
+            return this.alternatives;
+        }
+
+        // See NoSuchCommandException#suggestions
+        public List<CommandNode> suggestions(final int maxDistance, final int limit) {
+            return this.suggestionIndex.search(fold(this.argument), maxDistance, limit);
+        }
+
+        public String consumed() {
+            return this.input.substring(0, this.cursor);
+        }
+
+        public String remaining() {
+            return this.input.substring(this.cursor);
+        }
+
+        public NoSuchCommandException toException() {
+            return new NoSuchCommandException(this.input, this.cursor, this.argument, this.alternatives, this.suggestionIndex);
+        }
+
+        @Override
+        public String toString() {
+            return ToStringer.create(this)
+                    .append("input", this.input)
+                    .append("cursor", this.cursor)
+                    .append("argument", this.argument)
+                    .append("alternatives", this.alternatives)
+                    .toString();
+        }
+    }
+
+    /*
+     * The arguments of the command are malformed, such as too many or too
+     * few arguments, or unrecognized, duplicate or invalid flags.
+     */
+    record SyntaxError<S>(CommandException exception) implements DispatchOutcome<S> {
+        public SyntaxError {
+            requireNonNull(exception, "exception cannot be null");
+        }
+    }
+
+    // An argument could not be mapped into the required type.
+    record MappingError<S>(CommandArgumentException exception) implements DispatchOutcome<S> {
+        public MappingError {
+            requireNonNull(exception, "exception cannot be null");
+        }
+    }
+
+    // A condition of the command, or one of its arguments isn't fulfilled.
+    record UnfulfilledCondition<S>(UnfulfilledConditionException exception) implements DispatchOutcome<S> {
+        public UnfulfilledCondition {
+            requireNonNull(exception, "exception cannot be null");
+        }
+    }
+
+    // The deadline of the dispatch has passed before the command could be executed.
+    record TimedOut<S>(CommandTimeoutException exception) implements DispatchOutcome<S> {
+        public TimedOut {
+            requireNonNull(exception, "exception cannot be null");
+        }
+    }
+
+    // The command has thrown an exception during its execution.
+    record ExecutionFailure<S>(CommandContext<S> context, Throwable exception) implements DispatchOutcome<S> {
+        public ExecutionFailure {
+            requireNonNull(context, "context cannot be null");
+            requireNonNull(exception, "exception cannot be null");
+        }
+    }
+}
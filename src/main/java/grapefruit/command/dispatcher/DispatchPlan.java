@@ -0,0 +1,226 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.argument.CommandArgument;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.condition.CommandCondition;
+import grapefruit.command.util.BKTree;
+import grapefruit.command.util.ToStringer;
+import grapefruit.command.util.key.Key;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * Everything the dispatcher needs to know about a command chain, computed
+ * once, when the command is registered, so that dispatching a command
+ * doesn't have to recompute it over and over again.
+ */
+final class DispatchPlan<S> {
+    private static final int ASCII_LIMIT = 128;
+    private final CommandChain<S> chain;
+    // Conditions of literal and required arguments, in the order they need to be tested
+    private final CommandCondition<S>[] conditions;
+    private final CommandArgument.Required<S, ?>[] arguments;
+    private final CommandArgument.Flag<S, ?>[] flags;
+    /*
+     * Flag indices by shorthand. ASCII shorthands are looked up from the
+     * array directly (-1 meaning no such flag), other shorthands from the
+     * map.
+     */
+    private final int[] asciiShorthands;
+    private final Map<Character, Integer> shorthands;
+    // Flag indices by flag expression (the long name prefixed with '--')
+    private final Map<String, Integer> longNames;
+    // Flag names mapped to their flag expressions, used to suggest flags in place of unrecognized ones
+    private final BKTree<String> flagSuggestionIndex;
+    // Keys of required arguments and flags mapped to the slot their value is stored in
+    private final Map<Key<?>, Integer> slots;
+    private final int[] argumentSlots;
+    private final int[] flagSlots;
+    /*
+     * Whether every argument and flag has a slot of its own, in which case
+     * slots match positions in the chain: required arguments come first,
+     * then flags.
+     */
+    private final boolean packed;
+    // The time a dispatch of the command may take, or -1, if there's no limit
+    private final long timeoutNanos;
+
+    private DispatchPlan(
+            final CommandChain<S> chain,
+            final CommandCondition<S>[] conditions,
+            final CommandArgument.Required<S, ?>[] arguments,
+            final CommandArgument.Flag<S, ?>[] flags,
+            final int[] asciiShorthands,
+            final Map<Character, Integer> shorthands,
+            final Map<String, Integer> longNames,
+            final BKTree<String> flagSuggestionIndex,
+            final Map<Key<?>, Integer> slots,
+            final int[] argumentSlots,
+            final int[] flagSlots,
+            final long timeoutNanos
+    ) {
+        this.chain = requireNonNull(chain, "chain cannot be null");
+        this.conditions = requireNonNull(conditions, "conditions cannot be null");
+        this.arguments = requireNonNull(arguments, "arguments cannot be null");
+        this.flags = requireNonNull(flags, "flags cannot be null");
+        this.asciiShorthands = requireNonNull(asciiShorthands, "asciiShorthands cannot be null");
+        this.shorthands = requireNonNull(shorthands, "shorthands cannot be null");
+        this.longNames = requireNonNull(longNames, "longNames cannot be null");
+        this.flagSuggestionIndex = requireNonNull(flagSuggestionIndex, "flagSuggestionIndex cannot be null");
+        this.slots = requireNonNull(slots, "slots cannot be null");
+        this.argumentSlots = requireNonNull(argumentSlots, "argumentSlots cannot be null");
+        this.flagSlots = requireNonNull(flagSlots, "flagSlots cannot be null");
+        this.packed = slots.size() == arguments.length + flags.length;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    static <S> DispatchPlan<S> compile(final CommandChain<S> chain) {
+        return compile(chain, Optional.empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    static <S> DispatchPlan<S> compile(final CommandChain<S> chain, final Optional<Duration> timeout) {
+        requireNonNull(chain, "chain cannot be null");
+        requireNonNull(timeout, "timeout cannot be null");
+        final List<CommandArgument.Literal<S>> route = chain.route();
+        final List<CommandArgument.Required<S, ?>> arguments = chain.arguments();
+        final List<CommandArgument.Flag<S, ?>> flags = chain.flags();
+
+        final List<CommandCondition<S>> conditions = new ArrayList<>();
+        for (final CommandArgument.Literal<S> literal : route) literal.condition().ifPresent(conditions::add);
+        for (final CommandArgument.Required<S, ?> argument : arguments) argument.condition().ifPresent(conditions::add);
+
+        final int[] asciiShorthands = new int[ASCII_LIMIT];
+        Arrays.fill(asciiShorthands, -1);
+        final Map<Character, Integer> shorthands = new HashMap<>();
+        final Map<String, Integer> longNames = new HashMap<>();
+        final BKTree.Builder<String> flagSuggestions = BKTree.builder();
+        for (int i = 0; i < flags.size(); i++) {
+            final CommandArgument.Flag<S, ?> flag = flags.get(i);
+            // Keep the first flag, if multiple flags share the same name or shorthand
+            longNames.putIfAbsent(CommandDispatcherImpl.LONG_FLAG_PREFIX + flag.name(), i);
+            flagSuggestions.putIfAbsent(flag.name(), CommandDispatcherImpl.LONG_FLAG_PREFIX + flag.name());
+
+            final char shorthand = flag.shorthand();
+            if (shorthand == 0) continue;
+
+            if (shorthand < ASCII_LIMIT) {
+                if (asciiShorthands[shorthand] == -1) asciiShorthands[shorthand] = i;
+            } else {
+                shorthands.putIfAbsent(shorthand, i);
+            }
+        }
+
+        /*
+         * Arguments sharing the same key share the same slot as well, just like
+         * they'd share the same entry in a map.
+         */
+        final Map<Key<?>, Integer> slots = new HashMap<>();
+        final int[] argumentSlots = new int[arguments.size()];
+        for (int i = 0; i < argumentSlots.length; i++) argumentSlots[i] = assignSlot(slots, arguments.get(i).key());
+
+        final int[] flagSlots = new int[flags.size()];
+        for (int i = 0; i < flagSlots.length; i++) flagSlots[i] = assignSlot(slots, flags.get(i).key());
+
+        return new DispatchPlan<>(
+                chain,
+                conditions.toArray(CommandCondition[]::new),
+                arguments.toArray(CommandArgument.Required[]::new),
+                flags.toArray(CommandArgument.Flag[]::new),
+                asciiShorthands,
+                Map.copyOf(shorthands),
+                Map.copyOf(longNames),
+                flagSuggestions.build(),
+                Map.copyOf(slots),
+                argumentSlots,
+                flagSlots,
+                timeout.map(Duration::toNanos).orElse(-1L)
+        );
+    }
+
+    private static int assignSlot(final Map<Key<?>, Integer> slots, final Key<?> key) {
+        return slots.computeIfAbsent(key, x -> slots.size());
+    }
+
+    CommandChain<S> chain() {
+        return this.chain;
+    }
+
+    CommandCondition<S>[] conditions() {
+        return this.conditions;
+    }
+
+    CommandArgument.Required<S, ?>[] arguments() {
+        return this.arguments;
+    }
+
+    CommandArgument.Flag<S, ?>[] flags() {
+        return this.flags;
+    }
+
+    Map<Key<?>, Integer> slots() {
+        return this.slots;
+    }
+
+    int slotCount() {
+        return this.slots.size();
+    }
+
+    // Returns the slot assigned to the provided key, or -1, if the key isn't part of the chain.
+    int slot(final Key<?> key) {
+        final Integer slot = this.slots.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    boolean packed() {
+        return this.packed;
+    }
+
+    long timeoutNanos() {
+        return this.timeoutNanos;
+    }
+
+    // Returns the slot of the required argument at the provided index.
+    int argumentSlot(final int index) {
+        return this.argumentSlots[index];
+    }
+
+    // Returns the slot of the flag at the provided index.
+    int flagSlot(final int index) {
+        return this.flagSlots[index];
+    }
+
+    // Returns the index of the flag with the provided shorthand, or -1, if there's none.
+    int flagIndex(final char shorthand) {
+        if (shorthand < ASCII_LIMIT) return this.asciiShorthands[shorthand];
+
+        final Integer index = this.shorthands.get(shorthand);
+        return index == null ? -1 : index;
+    }
+
+    // Returns the index of the flag matching the provided '--name' expression, or -1, if there's none.
+    int flagIndex(final String expression) {
+        final Integer index = this.longNames.get(expression);
+        return index == null ? -1 : index;
+    }
+
+    BKTree<String> flagSuggestionIndex() {
+        return this.flagSuggestionIndex;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("chain", this.chain)
+                .append("conditions", Arrays.toString(this.conditions))
+                .toString();
+    }
+}
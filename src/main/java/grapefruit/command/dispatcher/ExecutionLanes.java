@@ -0,0 +1,119 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.util.ToStringer;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * Runs tasks submitted with the same key one after another, in the order
+ * they were submitted, while tasks of different keys run concurrently on the
+ * underlying executor.
+ *
+ * A lane is present in the map if, and only if, a task draining it has been
+ * handed to the executor. Lanes are removed as soon as they run out of
+ * tasks, so the number of lanes is bounded by the number of keys with
+ * pending tasks, not by the number of keys ever seen.
+ *
+ * A lane runs at most BATCH_SIZE tasks at a time, then hands a new task
+ * draining it to the executor and gives up its thread. Thus a busy lane
+ * can't keep a thread of a bounded executor to itself, while other lanes
+ * wait in the executor's queue.
+ */
+final class ExecutionLanes {
+    // The number of tasks a lane runs before giving up its thread
+    static final int BATCH_SIZE = 16;
+    private final Executor executor;
+    private final ConcurrentMap<Object, Lane> lanes = new ConcurrentHashMap<>();
+
+    ExecutionLanes(final Executor executor) {
+        this.executor = requireNonNull(executor, "executor cannot be null");
+    }
+
+    void execute(final Object key, final Runnable task) {
+        requireNonNull(key, "key cannot be null");
+        requireNonNull(task, "task cannot be null");
+        final Lane created = new Lane(key);
+        // Queue operations are only performed within compute calls, thus they're never concurrent
+        final Lane lane = this.lanes.compute(key, (k, existing) -> {
+            final Lane target = existing == null ? created : existing;
+            target.tasks.add(task);
+            return target;
+        });
+
+        if (lane != created) return;
+
+        try {
+            this.executor.execute(() -> drain(lane));
+        } catch (final RuntimeException ex) {
+            // The lane would never be drained, get rid of it
+            this.lanes.remove(key, lane);
+            throw ex;
+        }
+    }
+
+    private void drain(final Lane lane) {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final @Nullable Runnable task = next(lane);
+            if (task == null) return;
+
+            run(task);
+        }
+
+        // The lane may still have tasks, let it wait for its turn again
+        try {
+            this.executor.execute(() -> drain(lane));
+        } catch (final RuntimeException ex) {
+            // The executor doesn't accept tasks anymore, finish the lane on this thread instead
+            for (Runnable task = next(lane); task != null; task = next(lane)) run(task);
+        }
+    }
+
+    private static void run(final Runnable task) {
+        try {
+            task.run();
+        } catch (final Throwable ex) {
+            // Tasks are expected to handle their own failures, keep the lane going regardless
+        }
+    }
+
+    // Returns the next task of the lane, or removes the lane and returns null, if it has none left.
+    private @Nullable Runnable next(final Lane lane) {
+        final Lane current = this.lanes.computeIfPresent(lane.key, (k, existing) -> {
+            existing.next = existing.tasks.poll();
+            return existing.next == null ? null : existing;
+        });
+
+        return current == null ? null : current.next;
+    }
+
+    // Returns the number of lanes with pending tasks.
+    int size() {
+        return this.lanes.size();
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("executor", this.executor)
+                .append("lanes", this.lanes.size())
+                .toString();
+    }
+
+    private static final class Lane {
+        private final Object key;
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+        // The task last taken from the queue, only accessed by the thread draining the lane
+        private @Nullable Runnable next;
+
+        private Lane(final Object key) {
+            this.key = key;
+        }
+    }
+}
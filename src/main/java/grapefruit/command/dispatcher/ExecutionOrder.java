@@ -0,0 +1,12 @@
+package grapefruit.command.dispatcher;
+
+/*
+ * Determines how the commands of a batch (see CommandDispatcher#dispatchAll)
+ * are executed, once they have been parsed.
+ */
+public enum ExecutionOrder {
+    // Commands are executed one by one on the calling thread, in the order they've been provided.
+    ORDERED,
+    // Commands are executed in parallel, each as soon as it has been parsed.
+    UNORDERED
+}
@@ -0,0 +1,115 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.util.ToStringer;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+import static grapefruit.command.util.StringUtil.fold;
+import static java.util.Objects.requireNonNull;
+
+/*
+ * An immutable set of names, ignoring case. Names are folded (see
+ * StringUtil#fold) and stored in an open addressing table along with their
+ * hashes. Since hashes are computed from folded characters, any region of a
+ * string can be looked up without copying or folding it first.
+ */
+final class FoldedNameSet {
+    private static final FoldedNameSet EMPTY = new FoldedNameSet(new @Nullable String[1], new int[1], 0);
+    private final @Nullable String[] names;
+    private final int[] hashes;
+    private final int size;
+
+    private FoldedNameSet(final @Nullable String[] names, final int[] hashes, final int size) {
+        this.names = names;
+        this.hashes = hashes;
+        this.size = size;
+    }
+
+    static FoldedNameSet empty() {
+        return EMPTY;
+    }
+
+    static FoldedNameSet of(final Collection<String> names) {
+        requireNonNull(names, "names cannot be null");
+        if (names.isEmpty()) return EMPTY;
+
+        // Keep the table at most half full, so that probe sequences stay short
+        final int capacity = Integer.highestOneBit(Math.max(1, names.size() * 2 - 1)) << 1;
+        final @Nullable String[] table = new @Nullable String[capacity];
+        final int[] hashes = new int[capacity];
+        int size = 0;
+        for (final String name : names) {
+            final String folded = fold(requireNonNull(name, "name cannot be null"));
+            final int hash = hash(folded, 0, folded.length());
+            int index = hash & (capacity - 1);
+            while (table[index] != null && !(hashes[index] == hash && table[index].equals(folded))) {
+                index = (index + 1) & (capacity - 1);
+            }
+
+            if (table[index] == null) {
+                table[index] = folded;
+                hashes[index] = hash;
+                size++;
+            }
+        }
+
+        return new FoldedNameSet(table, hashes, size);
+    }
+
+    // Checks whether the region of the input between from (inclusive) and to (exclusive) is in this set, ignoring case.
+    boolean contains(final String input, final int from, final int to) {
+        Objects.checkFromToIndex(from, to, input.length());
+        if (this.size == 0) return false;
+
+        final int mask = this.names.length - 1;
+        final int hash = hash(input, from, to);
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            final @Nullable String name = this.names[index];
+            if (name == null) return false;
+            if (this.hashes[index] == hash && regionEquals(name, input, from, to)) return true;
+        }
+    }
+
+    // Checks whether the first word of the input is in this set, ignoring case.
+    boolean containsFirstWord(final String input) {
+        int from = 0;
+        while (from < input.length() && Character.isWhitespace(input.charAt(from))) from++;
+
+        int to = from;
+        while (to < input.length() && !Character.isWhitespace(input.charAt(to))) to++;
+
+        return from != to && contains(input, from, to);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    private static int hash(final String input, final int from, final int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) hash = 31 * hash + fold(input.charAt(i));
+
+        // Spread higher bits downwards, as only the lower ones select the index
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean regionEquals(final String folded, final String input, final int from, final int to) {
+        if (folded.length() != to - from) return false;
+
+        for (int i = 0; i < folded.length(); i++) {
+            if (folded.charAt(i) != fold(input.charAt(from + i))) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("names", Arrays.stream(this.names).filter(Objects::nonNull).toList())
+                .toString();
+    }
+}
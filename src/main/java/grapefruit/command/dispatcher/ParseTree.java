@@ -0,0 +1,65 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.argument.CommandArgument;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.util.key.Key;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * The result of CommandDispatcher#parse. Holds every part of the input that
+ * has been matched to an argument of the chain, in the order they appear in
+ * the input. Instances are immutable, though the mapped values themselves
+ * might not be.
+ */
+public record ParseTree<S>(CommandChain<S> chain, String input, List<Node<S>> nodes) {
+
+    public ParseTree {
+        requireNonNull(chain, "chain cannot be null");
+        requireNonNull(input, "input cannot be null");
+        nodes = List.copyOf(nodes);
+    }
+
+    // Returns the value mapped to the argument with the provided key, if it's been present in the input.
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> value(final Key<T> key) {
+        requireNonNull(key, "key cannot be null");
+        for (final Node<S> node : this.nodes) {
+            if (node.argument().key().equals(key)) return Optional.ofNullable((T) node.value());
+        }
+
+        return Optional.empty();
+    }
+
+    /*
+     * An argument, along with the value it's been mapped to, and the part of
+     * the input it's been mapped from. The value of a literal is the name or
+     * alias that appeared in the input, the span of a flag includes the flag
+     * expression itself.
+     */
+    public record Node<S>(CommandArgument<S, ?> argument, @Nullable Object value, Span span) {
+
+        public Node {
+            requireNonNull(argument, "argument cannot be null");
+            requireNonNull(span, "span cannot be null");
+        }
+    }
+
+    // The part of the input between from (inclusive) and to (exclusive).
+    public record Span(int from, int to) {
+
+        public Span {
+            if (from < 0 || to < from) {
+                throw new IllegalArgumentException("Invalid span [%d, %d)".formatted(from, to));
+            }
+        }
+
+        public String in(final String input) {
+            return input.substring(this.from, this.to);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.CommandModule;
+import grapefruit.command.argument.CommandArgument;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.util.ToStringer;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * A command, that has been looked up and parsed, but hasn't been executed
+ * yet, or the reason it has been rejected. The slot of a dispatch frame is
+ * reused by the next dispatch from the same thread, so it's only valid until
+ * it's released. Callers have to detach it, if they need it for longer.
+ * Rejections reported by the command graph are accepted as a consumer, so
+ * that lookups don't have to wrap their result.
+ */
+final class PreparedCommand<S> implements Consumer<DispatchOutcome.NoSuchCommand<S>> {
+    // Null, unless this is the slot of a dispatch frame
+    private final @Nullable DispatchFrame<S> frame;
+    private @Nullable CommandContextImpl<S> context;
+    private @Nullable DispatchPlan<S> plan;
+    private @Nullable CommandModule<S> command;
+    // Shares the state of the parse result builder of the frame, null once detached
+    private @Nullable CommandParseResultImpl<S> parseResult;
+    private @Nullable DispatchOutcome<S> rejected;
+
+    PreparedCommand(final @Nullable DispatchFrame<S> frame) {
+        this.frame = frame;
+    }
+
+    void accept(
+            final CommandContextImpl<S> context,
+            final DispatchPlan<S> plan,
+            final CommandModule<S> command,
+            final CommandParseResultImpl<S> parseResult
+    ) {
+        this.context = requireNonNull(context, "context cannot be null");
+        this.plan = requireNonNull(plan, "plan cannot be null");
+        this.command = requireNonNull(command, "command cannot be null");
+        this.parseResult = requireNonNull(parseResult, "parseResult cannot be null");
+        this.rejected = null;
+    }
+
+    @Override
+    public void accept(final DispatchOutcome.NoSuchCommand<S> rejected) {
+        reject(rejected);
+    }
+
+    void reject(final DispatchOutcome<S> rejected) {
+        this.rejected = requireNonNull(rejected, "rejected cannot be null");
+    }
+
+    /*
+     * Returns a slot holding the same command (or rejection), that stays
+     * valid after this one has been released, then releases this one. The
+     * parse result isn't carried over.
+     */
+    PreparedCommand<S> detach() {
+        if (this.frame == null) return this;
+
+        final PreparedCommand<S> detached = new PreparedCommand<>(null);
+        detached.context = this.context;
+        detached.plan = this.plan;
+        detached.command = this.command;
+        detached.rejected = this.rejected;
+        release();
+        return detached;
+    }
+
+    // Hands the slot back to its frame, if it has one.
+    void release() {
+        if (this.frame != null) this.frame.release();
+    }
+
+    void clear() {
+        this.context = null;
+        this.plan = null;
+        this.command = null;
+        this.parseResult = null;
+        this.rejected = null;
+    }
+
+    // Returns the reason the command has been rejected, or null, if it has been parsed successfully.
+    @Nullable DispatchOutcome<S> rejected() {
+        return this.rejected;
+    }
+
+    CommandContextImpl<S> context() {
+        return requireNonNull(this.context, "context is not available");
+    }
+
+    DispatchPlan<S> plan() {
+        return requireNonNull(this.plan, "plan is not available");
+    }
+
+    CommandModule<S> command() {
+        return requireNonNull(this.command, "command is not available");
+    }
+
+    // Assembles the parse tree of the provided input, that this command has been parsed from.
+    ParseTree<S> tree(final String input) {
+        final DispatchPlan<S> plan = plan();
+        final CommandParseResultImpl<S> parseResult = requireNonNull(this.parseResult, "parseResult is not available");
+        final CommandChain<S> chain = plan.chain();
+        final List<ParseTree.Node<S>> nodes = new ArrayList<>();
+        // Literals have been consumed by the command graph, a single word each
+        int cursor = 0;
+        for (int i = 0; i < chain.routeLength(); i++) {
+            final int from = CommandDispatcherImpl.skipWhitespace(input, cursor);
+            cursor = from;
+            while (cursor < input.length() && !Character.isWhitespace(input.charAt(cursor))) cursor++;
+
+            nodes.add(new ParseTree.Node<>(chain.literalAt(i), input.substring(from, cursor), new ParseTree.Span(from, cursor)));
+        }
+
+        final int argumentCount = plan.arguments().length;
+        for (int i = 0; i < argumentCount + plan.flags().length; i++) {
+            final int from = parseResult.spanStart(i);
+            if (from == -1) continue;
+
+            final CommandArgument.Dynamic<S, ?> argument = i < argumentCount
+                    ? plan.arguments()[i]
+                    : plan.flags()[i - argumentCount];
+            final ParseTree.Span span = new ParseTree.Span(from, parseResult.spanEnd(i));
+            nodes.add(new ParseTree.Node<>(argument, context().nullable(argument.key()), span));
+        }
+
+        // Flags may be mixed with the rest of the arguments
+        nodes.sort(Comparator.comparingInt(x -> x.span().from()));
+        return new ParseTree<>(chain, input, nodes);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("command", this.command)
+                .append("rejected", this.rejected)
+                .toString();
+    }
+}
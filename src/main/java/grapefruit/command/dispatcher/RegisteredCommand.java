@@ -0,0 +1,31 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.CommandModule;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * A command, along with its dispatch plan, as stored in the command graph.
+ * Looking up a command finds its plan as well, so snapshots don't need to
+ * map commands to their plans, which would have to be copied for each new
+ * snapshot.
+ */
+record RegisteredCommand<S>(CommandModule<S> command, DispatchPlan<S> plan) implements CommandModule<S> {
+
+    RegisteredCommand {
+        requireNonNull(command, "command cannot be null");
+        requireNonNull(plan, "plan cannot be null");
+    }
+
+    @Override
+    public CommandChain<S> chain(final CommandChainFactory<S> factory) {
+        return this.plan.chain();
+    }
+
+    @Override
+    public void execute(final CommandContext<S> context) {
+        this.command.execute(context);
+    }
+}
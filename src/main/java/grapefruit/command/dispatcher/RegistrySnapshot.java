@@ -0,0 +1,90 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.tree.CommandGraph;
+import grapefruit.command.util.ToStringer;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Collection;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * An immutable view of the registered commands. Instances are never modified
+ * once they've been created, registering and unregistering commands creates
+ * a new snapshot instead, thus snapshots can be read from any number of
+ * threads without synchronization.
+ *
+ * Creating a snapshot only copies the nodes on the routes of the affected
+ * commands (see CommandGraph#copy), so its cost doesn't grow with the number
+ * of commands already registered.
+ */
+final class RegistrySnapshot<S> {
+    private final CommandGraph<S> commandGraph;
+    /*
+     * Names and aliases of the children of the root node. The set is created
+     * when first requested, so that registering commands one by one doesn't
+     * rebuild it each time. Racing to create it is harmless, as sets created
+     * from the same graph are equivalent to each other.
+     */
+    private volatile @Nullable FoldedNameSet rootNames;
+
+    private RegistrySnapshot(final CommandGraph<S> commandGraph, final @Nullable FoldedNameSet rootNames) {
+        this.commandGraph = requireNonNull(commandGraph, "commandGraph cannot be null");
+        this.rootNames = rootNames;
+    }
+
+    static <S> RegistrySnapshot<S> empty(final boolean matchAbbreviations) {
+        return new RegistrySnapshot<>(new CommandGraph<>(matchAbbreviations), FoldedNameSet.empty());
+    }
+
+    CommandGraph<S> commandGraph() {
+        return this.commandGraph;
+    }
+
+    FoldedNameSet rootNames() {
+        FoldedNameSet rootNames = this.rootNames;
+        if (rootNames == null) {
+            rootNames = FoldedNameSet.of(this.commandGraph.rootNames());
+            this.rootNames = rootNames;
+        }
+
+        return rootNames;
+    }
+
+    /*
+     * Returns a new snapshot, that contains every command of this snapshot, as
+     * well as the provided ones. This instance is left untouched.
+     */
+    RegistrySnapshot<S> register(final Collection<RegisteredCommand<S>> commands) {
+        if (commands.isEmpty()) return this;
+
+        final CommandGraph<S> commandGraph = this.commandGraph.copy();
+        for (final RegisteredCommand<S> command : commands) {
+            commandGraph.insert(command.plan().chain(), command);
+        }
+
+        return new RegistrySnapshot<>(commandGraph, null);
+    }
+
+    /*
+     * Returns a new snapshot, that contains every command of this snapshot,
+     * except for the provided ones. This instance is left untouched.
+     */
+    RegistrySnapshot<S> unregister(final Collection<RegisteredCommand<S>> commands) {
+        if (commands.isEmpty()) return this;
+
+        final CommandGraph<S> commandGraph = this.commandGraph.copy();
+        for (final RegisteredCommand<S> command : commands) {
+            commandGraph.delete(command.plan().chain());
+        }
+
+        return new RegistrySnapshot<>(commandGraph, null);
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("commandGraph", this.commandGraph)
+                .toString();
+    }
+}
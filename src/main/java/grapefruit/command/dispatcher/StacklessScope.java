@@ -0,0 +1,28 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.CommandException;
+
+import java.io.Serial;
+
+/*
+ * Enables and restores stackless mode of command exceptions on the current
+ * thread. The toggle is only accessible to the exception hierarchy, that's
+ * why this class extends CommandException, it's never instantiated though.
+ */
+final class StacklessScope extends CommandException {
+    @Serial
+    private static final long serialVersionUID = -5216270863402985119L;
+
+    private StacklessScope() {
+        throw new UnsupportedOperationException("Cannot instantiate StacklessScope");
+    }
+
+    // Enables stackless mode, and returns the previous setting to be passed to exit.
+    static boolean enter() {
+        return stackless(true);
+    }
+
+    static void exit(final boolean previous) {
+        stackless(previous);
+    }
+}
@@ -5,6 +5,12 @@ import grapefruit.command.completion.CompletionFactory;
 import grapefruit.command.dispatcher.CommandRegistrationHandler;
 import grapefruit.command.dispatcher.ContextInjector;
 import grapefruit.command.util.function.ToBooleanFunction;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 public interface DispatcherConfig<S> {
 
@@ -16,6 +22,21 @@ public interface DispatcherConfig<S> {
 
     boolean eagerFlagCompletions();
 
+    boolean indexInput();
+
+    boolean reuseDispatchFrames();
+
+    boolean stacklessExceptions();
+
+    boolean matchAbbreviations();
+
+    Executor executor();
+
+    Optional<Function<S, ?>> laneKey();
+
+    // The time a dispatch of the provided command may take, if limited.
+    Optional<Duration> timeout(final CommandChain<S> chain);
+
     static <S> Builder<S> builder() {
         return new DispatcherConfigImpl.Builder<>();
     }
@@ -34,6 +55,62 @@ public interface DispatcherConfig<S> {
 
         Builder<S> eagerFlagCompletions();
 
+        /*
+         * Split each input into words once, up front, instead of scanning
+         * it again every time a word is read.
+         */
+        Builder<S> indexInput();
+
+        /*
+         * Reuse the internal state of dispatches (and completions) made from
+         * the same thread, instead of allocating it again for every call.
+         */
+        Builder<S> reuseDispatchFrames();
+
+        /*
+         * Don't fill in the stack trace of command exceptions created while
+         * dispatching (or completing) commands. Invalid input is expected to
+         * happen often, and the stack traces of these exceptions are rarely
+         * of any use.
+         */
+        Builder<S> stacklessExceptions();
+
+        /*
+         * Accept unambiguous prefixes of command names and aliases, such as
+         * "reg" for "register". Exact matches still take precedence, and
+         * prefixes shared by multiple commands are rejected with the
+         * candidates as alternatives.
+         */
+        Builder<S> matchAbbreviations();
+
+        /*
+         * The executor commands dispatched asynchronously are executed by.
+         * By default, each command is executed on a new virtual thread.
+         */
+        Builder<S> executor(final Executor executor);
+
+        /*
+         * Execute asynchronously dispatched commands of the same source one
+         * after another, in the order they were dispatched. Sources are
+         * identified by the keys the provided function returns, commands of
+         * different sources are still executed concurrently.
+         */
+        Builder<S> orderPerSource(final Function<S, ?> keyExtractor);
+
+        /*
+         * Limit the time dispatching any command may take, from the moment
+         * parsing begins. Commands executed synchronously are only stopped
+         * cooperatively, see CommandContext#deadline.
+         */
+        Builder<S> timeout(final Duration timeout);
+
+        /*
+         * Limit the time dispatching specific commands may take. If the
+         * provided function returns null for a command, the timeout set by
+         * timeout(Duration) applies to it, if any.
+         */
+        Builder<S> timeouts(final Function<CommandChain<S>, @Nullable Duration> timeouts);
+
         DispatcherConfig<S> build();
     }
 }
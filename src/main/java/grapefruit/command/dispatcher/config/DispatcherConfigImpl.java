@@ -6,25 +6,58 @@ import grapefruit.command.completion.CompletionFactory;
 import grapefruit.command.dispatcher.CommandRegistrationHandler;
 import grapefruit.command.dispatcher.ContextInjector;
 import grapefruit.command.util.function.ToBooleanFunction;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Function;
 
 import static java.util.Objects.requireNonNull;
 
 final class DispatcherConfigImpl<S> implements DispatcherConfig<S> {
+    private static final ThreadFactory VIRTUAL_THREADS = Thread.ofVirtual().name("command-executor-", 0).factory();
+    private static final Executor DEFAULT_EXECUTOR = task -> VIRTUAL_THREADS.newThread(task).start();
     private final CommandRegistrationHandler<S> registrationHandler;
     private final ContextInjector<S> contextInjector;
     private final CompletionFactory completionFactory;
     private final boolean eagerFlagCompletions;
+    private final boolean indexInput;
+    private final boolean reuseDispatchFrames;
+    private final boolean stacklessExceptions;
+    private final boolean matchAbbreviations;
+    private final Executor executor;
+    private final @Nullable Function<S, ?> laneKey;
+    private final @Nullable Duration timeout;
+    private final @Nullable Function<CommandChain<S>, @Nullable Duration> timeouts;
 
     private DispatcherConfigImpl(
             final CommandRegistrationHandler<S> registrationHandler,
             final ContextInjector<S> contextInjector,
             final CompletionFactory completionFactory,
-            final boolean eagerFlagCompletions
+            final boolean eagerFlagCompletions,
+            final boolean indexInput,
+            final boolean reuseDispatchFrames,
+            final boolean stacklessExceptions,
+            final boolean matchAbbreviations,
+            final Executor executor,
+            final @Nullable Function<S, ?> laneKey,
+            final @Nullable Duration timeout,
+            final @Nullable Function<CommandChain<S>, @Nullable Duration> timeouts
     ) {
         this.registrationHandler = requireNonNull(registrationHandler, "registrationHandler cannot be null");
         this.contextInjector = requireNonNull(contextInjector, "contextInjector cannot be null");
         this.completionFactory = requireNonNull(completionFactory, "completionFactory cannot be null");
         this.eagerFlagCompletions = eagerFlagCompletions;
+        this.indexInput = indexInput;
+        this.reuseDispatchFrames = reuseDispatchFrames;
+        this.stacklessExceptions = stacklessExceptions;
+        this.matchAbbreviations = matchAbbreviations;
+        this.executor = requireNonNull(executor, "executor cannot be null");
+        this.laneKey = laneKey;
+        this.timeout = timeout;
+        this.timeouts = timeouts;
     }
 
     @Override
@@ -47,6 +80,43 @@ final class DispatcherConfigImpl<S> implements DispatcherConfig<S> {
         return this.eagerFlagCompletions;
     }
 
+    @Override
+    public boolean indexInput() {
+        return this.indexInput;
+    }
+
+    @Override
+    public boolean reuseDispatchFrames() {
+        return this.reuseDispatchFrames;
+    }
+
+    @Override
+    public boolean stacklessExceptions() {
+        return this.stacklessExceptions;
+    }
+
+    @Override
+    public boolean matchAbbreviations() {
+        return this.matchAbbreviations;
+    }
+
+    @Override
+    public Executor executor() {
+        return this.executor;
+    }
+
+    @Override
+    public Optional<Function<S, ?>> laneKey() {
+        return Optional.ofNullable(this.laneKey);
+    }
+
+    @Override
+    public Optional<Duration> timeout(final CommandChain<S> chain) {
+        requireNonNull(chain, "chain cannot be null");
+        final @Nullable Duration timeout = this.timeouts == null ? null : this.timeouts.apply(chain);
+        return Optional.ofNullable(timeout != null ? timeout : this.timeout);
+    }
+
     static final class Builder<S> implements DispatcherConfig.Builder<S> {
         private CommandRegistrationHandler<S> registrationHandler;
         private ToBooleanFunction<CommandChain<S>> registrationFn;
@@ -54,6 +124,14 @@ final class DispatcherConfigImpl<S> implements DispatcherConfig<S> {
         private ContextInjector<S> contextInjector;
         private CompletionFactory completionFactory;
         private boolean eagerFlagCompletions;
+        private boolean indexInput;
+        private boolean reuseDispatchFrames;
+        private boolean stacklessExceptions;
+        private boolean matchAbbreviations;
+        private Executor executor;
+        private Function<S, ?> laneKey;
+        private Duration timeout;
+        private Function<CommandChain<S>, @Nullable Duration> timeouts;
 
         Builder() {}
 
@@ -93,6 +171,57 @@ final class DispatcherConfigImpl<S> implements DispatcherConfig<S> {
             return this;
         }
 
+        @Override
+        public DispatcherConfig.Builder<S> indexInput() {
+            this.indexInput = true;
+            return this;
+        }
+
+        @Override
+        public DispatcherConfig.Builder<S> reuseDispatchFrames() {
+            this.reuseDispatchFrames = true;
+            return this;
+        }
+
+        @Override
+        public DispatcherConfig.Builder<S> stacklessExceptions() {
+            this.stacklessExceptions = true;
+            return this;
+        }
+
+        @Override
+        public DispatcherConfig.Builder<S> matchAbbreviations() {
+            this.matchAbbreviations = true;
+            return this;
+        }
+
+        @Override
+        public DispatcherConfig.Builder<S> executor(final Executor executor) {
+            this.executor = requireNonNull(executor, "executor cannot be null");
+            return this;
+        }
+
+        @Override
+        public DispatcherConfig.Builder<S> orderPerSource(final Function<S, ?> keyExtractor) {
+            this.laneKey = requireNonNull(keyExtractor, "keyExtractor cannot be null");
+            return this;
+        }
+
+        @Override
+        public DispatcherConfig.Builder<S> timeout(final Duration timeout) {
+            requireNonNull(timeout, "timeout cannot be null");
+            if (timeout.isNegative()) throw new IllegalArgumentException("timeout cannot be negative");
+
+            this.timeout = timeout;
+            return this;
+        }
+
+        @Override
+        public DispatcherConfig.Builder<S> timeouts(final Function<CommandChain<S>, @Nullable Duration> timeouts) {
+            this.timeouts = requireNonNull(timeouts, "timeouts cannot be null");
+            return this;
+        }
+
         @Override
         public DispatcherConfig<S> build() {
             final CommandRegistrationHandler<S> registrationHandler = this.registrationHandler != null
@@ -107,7 +236,24 @@ final class DispatcherConfigImpl<S> implements DispatcherConfig<S> {
                     ? this.completionFactory
                     : CommandCompletion.factory();
 
-            return new DispatcherConfigImpl<>(registrationHandler, contextInjector, completionFactory, this.eagerFlagCompletions);
+            final Executor executor = this.executor != null
+                    ? this.executor
+                    : DEFAULT_EXECUTOR;
+
+            return new DispatcherConfigImpl<>(
+                    registrationHandler,
+                    contextInjector,
+                    completionFactory,
+                    this.eagerFlagCompletions,
+                    this.indexInput,
+                    this.reuseDispatchFrames,
+                    this.stacklessExceptions,
+                    this.matchAbbreviations,
+                    executor,
+                    this.laneKey,
+                    this.timeout,
+                    this.timeouts
+            );
         }
     }
 }
@@ -1,8 +1,5 @@
 package grapefruit.command.dispatcher.input;
 
-import grapefruit.command.argument.CommandArgumentException;
-import grapefruit.command.util.function.Function3;
-
 import java.util.Optional;
 
 public interface CommandInputTokenizer {
@@ -25,6 +22,15 @@ public interface CommandInputTokenizer {
 
     String readWord() throws MissingInputException;
 
+    /*
+     * Reads the next word, like readWord does, but without copying it. The
+     * returned sequence is a view over the input, that the tokenizer reuses.
+     * It's only valid until the next read or peek of any kind (readWord and
+     * peekWord included), or until the tokenizer is reset. Call toString on
+     * it, if the word needs to be kept around.
+     */
+    CharSequence readWordView() throws MissingInputException;
+
     String readQuotable() throws MissingInputException;
 
     String readRemaining() throws MissingInputException;
@@ -41,8 +47,33 @@ public interface CommandInputTokenizer {
         return new CommandInputTokenizerImpl(input);
     }
 
+    /*
+     * Like wrap, but the input is split into words once, up front, so that
+     * reading words later on doesn't have to scan the input again.
+     */
+    static CommandInputTokenizer indexed(final String input) {
+        return new CommandInputTokenizerImpl(input, true);
+    }
+
     interface Internal {
 
-        <X extends CommandArgumentException> X gen(final String argument, final Function3<String, String, String, X> provider);
+        /*
+         * Discards the state of the tokenizer, so that it can be reused to
+         * read the provided input.
+         */
+        void reset(final String input);
+
+        /*
+         * Creates an error for the provided argument. The factory receives
+         * the whole input and the current cursor position, rather than
+         * copies of the consumed and remaining input.
+         */
+        <T> T gen(final String argument, final ErrorFactory<T> factory);
+    }
+
+    @FunctionalInterface
+    interface ErrorFactory<T> {
+
+        T create(final String input, final int cursor, final String argument);
     }
 }
@@ -1,13 +1,9 @@
 package grapefruit.command.dispatcher.input;
 
-import grapefruit.command.argument.CommandArgumentException;
-import grapefruit.command.util.Range;
-import grapefruit.command.util.function.CharPredicate;
-import grapefruit.command.util.function.Function3;
 import org.jspecify.annotations.Nullable;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
@@ -15,14 +11,90 @@ import static java.util.Objects.requireNonNull;
 final class CommandInputTokenizerImpl implements CommandInputTokenizer {
     private static final char SINGLE_QUOTE = '\'';
     private static final char DOUBLE_QUOTE = '"';
-    private final Deque<Range> consumed = new ArrayDeque<>();
+    private static final int MAX_RETAINED_TOKENS = 1024;
     private final Internal internal;
-    private final String input;
+    private final WordView wordView = new WordView();
+    private final boolean indexed;
+    private String input;
+    // Index of the last non-whitespace character of the input, or -1, if there's none
+    private int lastNonWhitespace;
+    /*
+     * Start and end offsets of whitespace-delimited words (quotation marks
+     * included), one pair per word, if the input is tokenized up front.
+     * Null otherwise.
+     */
+    private int @Nullable [] tokens;
+    private int tokenCount;
+    // The index of the word most recently looked up
+    private int tokenHint;
     private int cursor;
+    // The range consumed by the last read, lastConsumedFrom is -1, if nothing has been read yet
+    private int lastConsumedFrom;
+    private int lastConsumedTo;
 
     public CommandInputTokenizerImpl(final String input) {
-        this.input = requireNonNull(input, "input cannot be null");
+        this(input, false);
+    }
+
+    CommandInputTokenizerImpl(final String input, final boolean indexed) {
         this.internal = new Internal(this);
+        this.indexed = indexed;
+        reset(input);
+    }
+
+    // Discards the state of this tokenizer, and starts over with the provided input.
+    private void reset(final String input) {
+        this.input = requireNonNull(input, "input cannot be null");
+        this.cursor = 0;
+        this.lastConsumedFrom = -1;
+        this.lastConsumedTo = -1;
+        this.tokenHint = 0;
+        if (this.indexed) {
+            // Reuse the array of the previous input, unless it's unreasonably large
+            final int[] buffer = this.tokens == null || this.tokens.length > MAX_RETAINED_TOKENS
+                    ? new int[16]
+                    : this.tokens;
+            final int[] tokens = tokenize(input, buffer);
+            // The last element holds the number of words
+            this.tokenCount = tokens[tokens.length - 1];
+            this.tokens = tokens;
+            this.lastNonWhitespace = this.tokenCount == 0 ? -1 : tokens[2 * this.tokenCount - 1] - 1;
+        } else {
+            this.lastNonWhitespace = findLastNonWhitespace(input);
+        }
+    }
+
+    /*
+     * Scans the input once, and collects the offsets of each word into the
+     * provided array, or into a bigger one, if it's too small. The last
+     * element of the returned array is the number of words found.
+     */
+    private static int[] tokenize(final String input, final int[] buffer) {
+        int[] tokens = buffer;
+        int count = 0;
+        int i = 0;
+        while (i < input.length()) {
+            while (i < input.length() && Character.isWhitespace(input.charAt(i))) i++;
+            if (i == input.length()) break;
+
+            final int start = i;
+            while (i < input.length() && !Character.isWhitespace(input.charAt(i))) i++;
+
+            if (2 * count + 3 > tokens.length) tokens = Arrays.copyOf(tokens, tokens.length * 2);
+            tokens[2 * count] = start;
+            tokens[2 * count + 1] = i;
+            count++;
+        }
+
+        tokens[tokens.length - 1] = count;
+        return tokens;
+    }
+
+    private static int findLastNonWhitespace(final String input) {
+        int i = input.length() - 1;
+        while (i >= 0 && Character.isWhitespace(input.charAt(i))) i--;
+
+        return i;
     }
 
     @Override
@@ -47,17 +119,21 @@ final class CommandInputTokenizerImpl implements CommandInputTokenizer {
 
     @Override
     public boolean canReadNonWhitespace() {
-        if (!canRead()) return false;
-        return this.input.substring(this.cursor).chars().anyMatch(x -> !Character.isWhitespace(x));
+        /*
+         * The input never changes, so every character after the cursor is
+         * whitespace exactly when the cursor has moved past the last
+         * non-whitespace character.
+         */
+        return this.cursor <= this.lastNonWhitespace;
     }
 
     @Override
     public char read() throws MissingInputException {
         requireCanRead();
 
-        int from = this.cursor;
+        final int from = this.cursor;
         this.cursor = from + 1;
-        this.consumed.addLast(Range.range(from, this.cursor));
+        consume(from, this.cursor);
         return this.input.charAt(from);
     }
 
@@ -83,8 +159,20 @@ final class CommandInputTokenizerImpl implements CommandInputTokenizer {
 
     @Override
     public String readWord() throws MissingInputException {
+        return readWordView().toString();
+    }
+
+    @Override
+    public CharSequence readWordView() throws MissingInputException {
         skipWhitespace();
-        return readWhile(x -> !Character.isWhitespace(x));
+        requireCanRead();
+
+        final int from = this.cursor;
+        this.cursor = skipWord(from);
+        consume(from, this.cursor);
+        this.wordView.from = from;
+        this.wordView.to = this.cursor;
+        return this.wordView;
     }
 
     @Override
@@ -93,15 +181,27 @@ final class CommandInputTokenizerImpl implements CommandInputTokenizer {
         final char start = peek();
         // This means we're dealing with a quoted string
         if (start == SINGLE_QUOTE || start == DOUBLE_QUOTE) {
-            return performRead(() -> {
-                read(); // Get rid of leading quotation
-                // Require the argument to be surrounded by the same kind of
-                // quotation marks.
-                final String result = readWhile(x -> x != start);
-                read(); // Get rid of trailing quotation
-
-                return result;
-            });
+            final int from = this.cursor;
+            // Get rid of leading quotation
+            this.cursor = from + 1;
+            if (!canRead()) {
+                consume(from, this.cursor);
+                throw new MissingInputException();
+            }
+
+            // Require the argument to be surrounded by the same kind of
+            // quotation marks.
+            final int end = this.input.indexOf(start, this.cursor);
+            if (end == -1) {
+                consume(this.cursor, this.input.length());
+                this.cursor = this.input.length();
+                throw new MissingInputException();
+            }
+
+            // Get rid of trailing quotation
+            this.cursor = end + 1;
+            consume(from, this.cursor);
+            return this.input.substring(from + 1, end);
         }
 
         return readWord();
@@ -110,15 +210,12 @@ final class CommandInputTokenizerImpl implements CommandInputTokenizer {
     @Override
     public String readRemaining() throws MissingInputException {
         skipWhitespace();
-        return performRead(() -> {
-            final String result = remaining();
-            this.cursor = this.input.length();
-            if (result.isEmpty()) {
-                throw new MissingInputException();
-            }
+        requireCanRead();
 
-            return result;
-        });
+        final int from = this.cursor;
+        this.cursor = this.input.length();
+        consume(from, this.cursor);
+        return this.input.substring(from);
     }
 
     @Override
@@ -133,10 +230,9 @@ final class CommandInputTokenizerImpl implements CommandInputTokenizer {
 
     @Override
     public Optional<String> lastConsumed() {
-        final @Nullable Range range = this.consumed.peekLast();
-        return range == null
+        return this.lastConsumedFrom == -1
                 ? Optional.empty()
-                : Optional.of(this.input.substring(range.from(), range.to()));
+                : Optional.of(this.input.substring(this.lastConsumedFrom, this.lastConsumedTo));
     }
 
     @Override
@@ -148,34 +244,89 @@ final class CommandInputTokenizerImpl implements CommandInputTokenizer {
         if (!canRead()) throw new MissingInputException();
     }
 
-    private String readWhile(final CharPredicate condition) throws MissingInputException {
+    /*
+     * Every read records the range it consumed, but only the last range is
+     * ever needed, so there's no reason to keep the earlier ones around.
+     */
+    private void consume(final int from, final int to) {
+        this.lastConsumedFrom = from;
+        this.lastConsumedTo = to;
+    }
+
+    private void skipWhitespace() throws MissingInputException {
         requireCanRead();
-        return performRead(() -> {
-            final StringBuilder builder = new StringBuilder();
-            while (canRead() && condition.test(peek())) {
-                builder.append(read());
-            }
 
-            return builder.toString();
-        });
+        final int from = this.cursor;
+        int i;
+        if (this.tokens != null) {
+            final int token = tokenAt(from);
+            i = token == this.tokenCount
+                    ? this.input.length()
+                    : Math.max(from, this.tokens[2 * token]);
+        } else {
+            i = from;
+            while (i < this.input.length() && Character.isWhitespace(this.input.charAt(i))) i++;
+        }
+
+        this.cursor = i;
+        consume(from, i);
     }
 
-    private void skipWhitespace() throws MissingInputException {
-        readWhile(Character::isWhitespace);
+    // Returns the index of the first whitespace character at or after the provided index.
+    private int skipWord(final int from) {
+        if (this.tokens != null) {
+            final int token = tokenAt(from);
+            // The provided index is either within a word, or is at the end of the input
+            return token == this.tokenCount ? from : this.tokens[2 * token + 1];
+        }
+
+        int i = from;
+        while (i < this.input.length() && !Character.isWhitespace(this.input.charAt(i))) i++;
+
+        return i;
     }
 
-    private String performRead(final Read read) throws MissingInputException {
-        final int from = this.cursor;
-        final String result = read.perform();
-        final int to = this.cursor;
-        this.consumed.addLast(Range.range(from, to));
-        return result;
+    /*
+     * Returns the index of the first word ending after the provided position,
+     * or the number of words, if there's none. The cursor mostly moves forward,
+     * and only ever moves back a little (see peekWord), so starting from the
+     * word looked up last makes this constant time in practice.
+     */
+    private int tokenAt(final int position) {
+        final int[] tokens = requireNonNull(this.tokens);
+        int token = this.tokenHint;
+        while (token > 0 && tokens[2 * token - 1] > position) token--;
+        while (token < this.tokenCount && tokens[2 * token + 1] <= position) token++;
+
+        this.tokenHint = token;
+        return token;
     }
 
-    @FunctionalInterface
-    interface Read {
+    private final class WordView implements CharSequence {
+        private int from;
+        private int to;
 
-        String perform() throws MissingInputException;
+        @Override
+        public int length() {
+            return this.to - this.from;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            Objects.checkIndex(index, length());
+            return CommandInputTokenizerImpl.this.input.charAt(this.from + index);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            Objects.checkFromToIndex(start, end, length());
+            return CommandInputTokenizerImpl.this.input.substring(this.from + start, this.from + end);
+        }
+
+        @Override
+        public String toString() {
+            return CommandInputTokenizerImpl.this.input.substring(this.from, this.to);
+        }
     }
 
     private static final class Internal implements CommandInputTokenizer.Internal {
@@ -186,12 +337,13 @@ final class CommandInputTokenizerImpl implements CommandInputTokenizer {
         }
 
         @Override
-        public <X extends CommandArgumentException> X gen(final String argument, final Function3<String, String, String, X> provider) {
-            return provider.apply(
-                    this.impl.consumed(), // Consumed input
-                    argument, // The argument that caused this exception
-                    this.impl.remaining() // The remaining input
-            );
+        public void reset(final String input) {
+            this.impl.reset(input);
+        }
+
+        @Override
+        public <T> T gen(final String argument, final CommandInputTokenizer.ErrorFactory<T> factory) {
+            return factory.create(this.impl.input, this.impl.cursor, argument);
         }
     }
 }
@@ -4,23 +4,84 @@ import grapefruit.command.CommandException;
 import grapefruit.command.CommandModule;
 import grapefruit.command.argument.CommandArgument;
 import grapefruit.command.argument.CommandChain;
+import grapefruit.command.dispatcher.DispatchOutcome;
 import grapefruit.command.dispatcher.input.CommandInputTokenizer;
 import grapefruit.command.dispatcher.input.MissingInputException;
 import grapefruit.command.tree.node.CommandNode;
 import grapefruit.command.tree.node.InternalCommandNode;
+import grapefruit.command.util.BKTree;
 import grapefruit.command.util.Tuple2;
+import org.jspecify.annotations.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
 
 public class CommandGraph<S> {
-    private final InternalCommandNode<S> rootNode = InternalCommandNode.of("__ROOT__", Set.of(), null);
+    private InternalCommandNode<S> rootNode;
+    // Whether route parts may be abbreviated to an unambiguous prefix
+    private final boolean matchAbbreviations;
+    /*
+     * Nodes this graph may modify in place. Any other node is shared with
+     * copies of this graph (or the graph this one was copied from), and is
+     * copied before being modified, along with the nodes leading to it.
+     */
+    private final Set<InternalCommandNode<S>> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public CommandGraph() {
+        this(false);
+    }
+
+    public CommandGraph(final boolean matchAbbreviations) {
+        this(InternalCommandNode.of("__ROOT__", Set.of()), matchAbbreviations);
+        this.owned.add(this.rootNode);
+    }
+
+    private CommandGraph(final InternalCommandNode<S> rootNode, final boolean matchAbbreviations) {
+        this.rootNode = requireNonNull(rootNode, "rootNode cannot be null");
+        this.matchAbbreviations = matchAbbreviations;
+    }
+
+    /*
+     * Creates a copy of this graph. Modifying the copy doesn't affect this
+     * instance and vice versa. Nodes are shared until either graph modifies
+     * them, at which point only the nodes on the modified route are copied,
+     * so the cost of copying doesn't grow with the size of the graph.
+     */
+    public CommandGraph<S> copy() {
+        // From now on, neither graph may modify the nodes in place
+        this.owned.clear();
+        return new CommandGraph<>(this.rootNode, this.matchAbbreviations);
+    }
+
+    private InternalCommandNode<S> ownRoot() {
+        if (!this.owned.contains(this.rootNode)) {
+            this.rootNode = this.rootNode.copy();
+            this.owned.add(this.rootNode);
+        }
+
+        return this.rootNode;
+    }
+
+    // Returns the child itself if it's owned, otherwise a copy of it, that replaces the child in its (owned) parent.
+    private InternalCommandNode<S> own(final InternalCommandNode<S> parent, final InternalCommandNode<S> child) {
+        if (this.owned.contains(child)) return child;
+
+        final InternalCommandNode<S> copy = child.copy();
+        parent.replaceChild(child, copy);
+        this.owned.add(copy);
+        return copy;
+    }
 
     public void insert(final CommandChain<S> chain, final CommandModule<S> command) {
         requireNonNull(chain, "chain cannot be null");
@@ -30,7 +91,7 @@ public class CommandGraph<S> {
             throw new IllegalStateException("Cannot register a command handler directly on the root node");
         }
 
-        InternalCommandNode<S> node = this.rootNode;
+        InternalCommandNode<S> node = ownRoot();
         for (final Iterator<CommandArgument.Literal<S>> iter = chain.route().iterator(); iter.hasNext();) {
             final CommandArgument.Literal<S> literal = iter.next();
             final boolean isLast = !iter.hasNext();
@@ -48,15 +109,17 @@ public class CommandGraph<S> {
                     throw new IllegalStateException("Command node '%s' already exists in the command tree".formatted(child));
                 }
 
-                child.mergeAliases(literal.aliases());
-                node = child;
+                final InternalCommandNode<S> owned = own(node, child);
+                node.mergeChildAliases(owned, literal.aliases());
+                node = owned;
             } else {
                 if (node.command().isPresent()) {
                     throw new IllegalStateException("Command node '%s' already has a command attached to it, thus it cannot have children.");
                 }
 
-                final InternalCommandNode<S> child = InternalCommandNode.of(literal.name(), literal.aliases(), node);
+                final InternalCommandNode<S> child = InternalCommandNode.of(literal.name(), literal.aliases());
                 node.addChild(child);
+                this.owned.add(child);
                 node = child;
                 // Register command if we're at the end of the chain
                 if (isLast) node.command(command);
@@ -69,20 +132,23 @@ public class CommandGraph<S> {
         if (chain.route().isEmpty()) return;
         if (this.rootNode.isLeaf()) throw new IllegalStateException("Root node is leaf");
 
-        InternalCommandNode<S> node = this.rootNode;
+        // The nodes leading to the deleted one, the closest one first
+        final Deque<InternalCommandNode<S>> path = new ArrayDeque<>();
+        InternalCommandNode<S> node = ownRoot();
         for (final CommandArgument.Literal<S> literal : chain.route()) {
             final Optional<InternalCommandNode<S>> childCandidate = queryChildOf(node, literal);
             if (childCandidate.isEmpty()) {
                 throw new IllegalStateException("Command node '%s' does not have a suitable child".formatted(node));
             }
 
-            node = childCandidate.orElseThrow();
+            path.push(node);
+            node = own(node, childCandidate.orElseThrow());
         }
 
         // Check just in case
         if (!node.isLeaf()) throw new IllegalStateException("Attempting to delete non-leaf command node");
-        while (!node.equals(this.rootNode)) {
-            final InternalCommandNode<S> parent = node.parent().orElseThrow();
+        while (!path.isEmpty()) {
+            final InternalCommandNode<S> parent = path.pop();
             // If the node is a leaf node, we can safely delete it from its parent
             if (node.isLeaf()) {
                 parent.removeChild(node);
@@ -94,28 +160,86 @@ public class CommandGraph<S> {
         }
     }
 
+    /*
+     * Returns the names and aliases of the children of the root node. The
+     * first word of any valid command input is one of these, ignoring case.
+     */
+    public List<String> rootNames() {
+        final List<String> names = new ArrayList<>();
+        for (final InternalCommandNode<S> child : this.rootNode.children()) {
+            names.add(child.name());
+            names.addAll(child.aliases());
+        }
+
+        return names;
+    }
+
+    /*
+     * Checks whether the provided word is an unambiguous prefix of the name
+     * or an alias of a child of the root node, ignoring case. Always false,
+     * unless abbreviations are matched.
+     */
+    public boolean isRootAbbreviation(final String word) {
+        requireNonNull(word, "word cannot be null");
+        return this.matchAbbreviations && this.rootNode.queryChildByPrefix(word).isPresent();
+    }
+
     public CommandModule<S> query(final CommandInputTokenizer input) throws CommandException {
+        final Tuple2<CommandModule<S>, DispatchOutcome.NoSuchCommand<S>> result = lookup(input);
+        final Optional<DispatchOutcome.NoSuchCommand<S>> failure = result.right();
+        if (failure.isPresent()) throw failure.orElseThrow().toException();
+
+        return result.left().orElseThrow();
+    }
+
+    /*
+     * Same as query, except that if no command can be found, the reason is
+     * returned (as the right side of the tuple), rather than thrown.
+     */
+    public Tuple2<CommandModule<S>, DispatchOutcome.NoSuchCommand<S>> lookup(final CommandInputTokenizer input) {
         requireNonNull(input, "input cannot be null");
-        final InternalCommandNode<S> node = query0(input);
-        final Optional<CommandModule<S>> command = node.command();
-        if (command.isPresent()) return command.orElseThrow();
+        final Route<S> route = resolve(input);
+        final @Nullable CommandModule<S> command = route.command();
+        return command != null
+                ? new Tuple2<>(command, null)
+                : new Tuple2<>(null, generateNoSuchCommand(route, input));
+    }
 
-        throw generateNoSuchCommand(node, input, "");
+    /*
+     * Same as lookup, except that the result isn't wrapped in a tuple. The
+     * command is returned, or if no command can be found, null is returned,
+     * and the reason is passed to the provided consumer.
+     */
+    public @Nullable CommandModule<S> lookup(final CommandInputTokenizer input, final Consumer<? super DispatchOutcome.NoSuchCommand<S>> rejected) {
+        requireNonNull(input, "input cannot be null");
+        requireNonNull(rejected, "rejected cannot be null");
+        final Route<S> route = resolve(input);
+        final @Nullable CommandModule<S> command = route.command();
+        if (command == null) rejected.accept(generateNoSuchCommand(route, input));
+
+        return command;
     }
 
-    private InternalCommandNode<S> query0(final CommandInputTokenizer input) throws NoSuchCommandException {
+    /*
+     * Walks the tree as far as the input allows. If a route part cannot be
+     * resolved, the returned route holds the last node that could be, along
+     * with the route part that could not be resolved.
+     */
+    private Route<S> resolve(final CommandInputTokenizer input) {
         InternalCommandNode<S> node = this.rootNode;
         try {
             while (input.canReadNonWhitespace()) {
                 final String name = input.readWord();
-                final Optional<InternalCommandNode<S>> childCandidate = node.queryChild(name);
-                if (childCandidate.isEmpty()) throw generateNoSuchCommand(node, input, name);
+                Optional<InternalCommandNode<S>> childCandidate = node.queryChild(name);
+                // Exact matches take precedence, even if the name is a prefix of another one
+                if (childCandidate.isEmpty() && this.matchAbbreviations) childCandidate = node.queryChildByPrefix(name);
+                if (childCandidate.isEmpty()) return new Route<>(node, name);
 
                 node = childCandidate.orElseThrow();
                 if (node.isLeaf()) {
                     final Optional<CommandModule<S>> commandCandidate = node.command();
                     if (commandCandidate.isPresent()) {
-                        return node;
+                        return new Route<>(node, null);
                     }
 
                     /*
@@ -129,46 +253,24 @@ public class CommandGraph<S> {
                 }
             }
         } catch (final MissingInputException ex) {
-            throw generateNoSuchCommand(node, input, "");
+            return new Route<>(node, "");
         }
 
-        return node;
+        return new Route<>(node, null);
     }
 
     public Tuple2<List<String>, CommandModule<S>> complete(final CommandInputTokenizer input) {
         requireNonNull(input, "input cannot be null");
 
-        try {
-            if (!input.canReadNonWhitespace()) {
-                // The input is empty, complete the direct children of the root node
-                return new Tuple2<>(completeChildren(this.rootNode), null);
+        if (!input.canReadNonWhitespace()) {
+            // The input is empty, complete the direct children of the root node
+            return new Tuple2<>(this.rootNode.completeChildren(""), null);
 
-            }
-
-            final InternalCommandNode<S> node = query0(input);
-            final Optional<CommandModule<S>> command = node.command();
-
-            if (command.isPresent() && input.canRead()) {
-                /*
-                 * We have found a command. If there are more arguments in the queue, we
-                 * want to return this command (thus passing all subsequent arguments for
-                 * completion to it rather than handling them here).
-                 */
-                return new Tuple2<>(null, command.orElseThrow());
-            }
-            /*
-             * If `canRead()` returns true at this stage, it means that all
-             * command names have been valid so far and the input ends with
-             * a whitespace. In this case, we want to complete child nodes
-             * with an empty input string. Otherwise, complete the current
-             * node with the current input.
-             */
-            final List<String> completions = input.canRead()
-                    ? completeChildren(node)
-                    : completeNode(node);
+        }
 
-            return new Tuple2<>(completions, null);
-        } catch (final NoSuchCommandException ex) {
+        final Route<S> route = resolve(input);
+        final @Nullable String failed = route.failed();
+        if (failed != null) {
             final List<String> completions;
             if (input.canRead()) {
                 /*
@@ -178,28 +280,40 @@ public class CommandGraph<S> {
                  */
                 completions = List.of();
             } else {
-                // Otherwise, we collect completions for the current node
-                completions = ex.alternatives().stream()
-                        .flatMap(CommandGraph::collectAliases)
-                        .toList();
+                // Otherwise, we collect the children matching the current input
+                completions = route.node().completeChildren(failed);
             }
 
             return new Tuple2<>(completions, null);
         }
-    }
 
-    private static Stream<String> collectAliases(final CommandNode node) {
-        return Stream.concat(Stream.of(node.name()), node.aliases().stream());
-    }
+        final InternalCommandNode<S> node = route.node();
+        final Optional<CommandModule<S>> command = node.command();
 
-    private static List<String> completeNode(final CommandNode node) {
-        return collectAliases(node).toList();
+        if (command.isPresent() && input.canRead()) {
+            /*
+             * We have found a command. If there are more arguments in the queue, we
+             * want to return this command (thus passing all subsequent arguments for
+             * completion to it rather than handling them here).
+             */
+            return new Tuple2<>(null, command.orElseThrow());
+        }
+        /*
+         * If `canRead()` returns true at this stage, it means that all
+         * command names have been valid so far and the input ends with
+         * a whitespace. In this case, we want to complete child nodes
+         * with an empty input string. Otherwise, complete the current
+         * node with the current input.
+         */
+        final List<String> completions = input.canRead()
+                ? node.completeChildren("")
+                : completeNode(node);
+
+        return new Tuple2<>(completions, null);
     }
 
-    private static <S> List<String> completeChildren(final InternalCommandNode<S> node) {
-        return node.children().stream()
-                .flatMap(CommandGraph::collectAliases)
-                .toList();
+    private static List<String> completeNode(final CommandNode node) {
+        return Stream.concat(Stream.of(node.name()), node.aliases().stream()).toList();
     }
 
     private static <S> Optional<InternalCommandNode<S>> queryChildOf(final InternalCommandNode<S> parent, final CommandArgument.Literal<S> literal) {
@@ -214,14 +328,38 @@ public class CommandGraph<S> {
         return Optional.empty();
     }
 
-    private static <S> NoSuchCommandException generateNoSuchCommand(final InternalCommandNode<S> node, final CommandInputTokenizer input, final String argument) {
-        final Set<CommandNode> alternatives = node.children().stream()
-                .map(InternalCommandNode::asImmutable)
-                .collect(Collectors.toSet());
+    private DispatchOutcome.NoSuchCommand<S> generateNoSuchCommand(final Route<S> route, final CommandInputTokenizer input) {
+        final @Nullable String failed = route.failed();
+        return generateNoSuchCommand(route.node(), input, failed == null ? "" : failed);
+    }
+
+    private DispatchOutcome.NoSuchCommand<S> generateNoSuchCommand(final InternalCommandNode<S> node, final CommandInputTokenizer input, final String argument) {
+        /*
+         * If abbreviations are matched, and the argument is the prefix of
+         * more than one child, it was ambiguous. In that case only those
+         * children are offered as alternatives, and suggested. The index of
+         * the candidates is built on the spot, as there are only a few of
+         * them, and ambiguous input is rare.
+         */
+        final Set<CommandNode> candidates = this.matchAbbreviations && !argument.isEmpty()
+                ? node.childrenWithPrefix(argument)
+                : Set.of();
+        final Set<CommandNode> alternatives = candidates.isEmpty() ? node.immutableChildren() : candidates;
+        final BKTree<CommandNode> suggestionIndex = candidates.isEmpty()
+                ? node.childSuggestionIndex()
+                : NoSuchCommandException.indexOf(candidates);
 
         return input.internal().gen(
                 argument,
-                (consumed, arg, remaining) -> new NoSuchCommandException(consumed, arg, remaining, alternatives)
+                (in, cursor, arg) -> new DispatchOutcome.NoSuchCommand<>(in, cursor, arg, alternatives, suggestionIndex)
         );
     }
+
+    private record Route<S>(InternalCommandNode<S> node, @Nullable String failed) {
+
+        // Returns the command the route leads to, or null, if it leads nowhere.
+        @Nullable CommandModule<S> command() {
+            return this.failed == null ? this.node.command().orElse(null) : null;
+        }
+    }
 }
@@ -2,23 +2,79 @@ package grapefruit.command.tree;
 
 import grapefruit.command.argument.CommandArgumentException;
 import grapefruit.command.tree.node.CommandNode;
+import grapefruit.command.util.BKTree;
+import org.jspecify.annotations.Nullable;
 
 import java.io.Serial;
+import java.util.List;
 import java.util.Set;
 
+import static grapefruit.command.util.StringUtil.fold;
 import static java.util.Objects.requireNonNull;
 
 public class NoSuchCommandException extends CommandArgumentException {
     @Serial
     private static final long serialVersionUID = 8554442705689440988L;
     private final Set<CommandNode> alternatives;
+    // Not serialized, suggestions are computed from the alternatives if it's missing
+    private final transient @Nullable BKTree<CommandNode> suggestionIndex;
+
+    /*
+     * Alternatives are copied upon construction, unless they're immutable
+     * already, in which case the provided set is shared, rather than copied.
+     * The suggestion index is expected to map the folded names and aliases of
+     * the alternatives to the alternatives. It's immutable, so it's shared as
+     * well.
+     */
+    public NoSuchCommandException(
+            final String input,
+            final int cursor,
+            final String argument,
+            final Set<CommandNode> alternatives,
+            final BKTree<CommandNode> suggestionIndex
+    ) {
+        super(input, cursor, argument);
+        this.alternatives = Set.copyOf(requireNonNull(alternatives, "alternatives cannot be null"));
+        this.suggestionIndex = requireNonNull(suggestionIndex, "suggestionIndex cannot be null");
+    }
+
+    public NoSuchCommandException(final String input, final int cursor, final String argument, final Set<CommandNode> alternatives) {
+        super(input, cursor, argument);
+        this.alternatives = Set.copyOf(requireNonNull(alternatives, "alternatives cannot be null"));
+        this.suggestionIndex = null;
+    }
 
     public NoSuchCommandException(final String consumed, final String argument, final String remaining, final Set<CommandNode> alternatives) {
         super(consumed, argument, remaining);
-        this.alternatives = requireNonNull(alternatives, "alternatives cannot be null");
+        this.alternatives = Set.copyOf(requireNonNull(alternatives, "alternatives cannot be null"));
+        this.suggestionIndex = null;
     }
 
+    // Returns an immutable set of the nodes that would have been accepted instead of the argument.
     public Set<CommandNode> alternatives() {
-        return Set.copyOf(this.alternatives);
+        return this.alternatives;
+    }
+
+    /*
+     * Returns at most limit alternatives, whose name or any of their aliases
+     * is within maxDistance edits (ignoring case) of the argument, closest
+     * first.
+     */
+    public List<CommandNode> suggestions(final int maxDistance, final int limit) {
+        final BKTree<CommandNode> index = this.suggestionIndex != null
+                ? this.suggestionIndex
+                : indexOf(this.alternatives);
+        return index.search(fold(argument()), maxDistance, limit);
+    }
+
+    // Maps the folded names and aliases of the provided nodes to the nodes.
+    static BKTree<CommandNode> indexOf(final Set<CommandNode> nodes) {
+        final BKTree.Builder<CommandNode> builder = BKTree.builder();
+        for (final CommandNode node : nodes) {
+            builder.putIfAbsent(fold(node.name()), node);
+            for (final String alias : node.aliases()) builder.putIfAbsent(fold(alias), node);
+        }
+
+        return builder.build();
     }
 }
@@ -12,7 +12,7 @@ final class CommandNodeImpl implements CommandNode {
 
     CommandNodeImpl(final String name, final Set<String> aliases) {
         this.name = requireNonNull(name, "name cannot be null");
-        this.aliases = requireNonNull(aliases, "aliases cannot be null");
+        this.aliases = Set.copyOf(requireNonNull(aliases, "aliases cannot be null"));
     }
 
     @Override
@@ -22,7 +22,7 @@ final class CommandNodeImpl implements CommandNode {
 
     @Override
     public Set<String> aliases() {
-        return Set.copyOf(this.aliases);
+        return this.aliases;
     }
 
     @Override
@@ -1,36 +1,77 @@
 package grapefruit.command.tree.node;
 
 import grapefruit.command.CommandModule;
-import org.jspecify.annotations.Nullable;
+import grapefruit.command.util.BKTree;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 public interface InternalCommandNode<S> extends CommandNode {
 
+    // Only modifies this node, see mergeChildAliases
     void mergeAliases(final Set<String> aliases);
 
+    // Merges the provided aliases into the provided child, and makes them available for lookups.
+    void mergeChildAliases(final InternalCommandNode<S> child, final Set<String> aliases);
+
     boolean matches(final String query);
 
     void addChild(final InternalCommandNode<S> child);
 
     void removeChild(final InternalCommandNode<S> child);
 
+    // Replaces the provided child with a copy of it (see copy), under the same names.
+    void replaceChild(final InternalCommandNode<S> child, final InternalCommandNode<S> replacement);
+
     Optional<InternalCommandNode<S>> queryChild(final String query);
 
-    Set<InternalCommandNode<S>> children();
+    /*
+     * Returns the child, whose name or aliases are the only ones starting
+     * with the provided prefix (ignoring case), if there is such a child.
+     */
+    Optional<InternalCommandNode<S>> queryChildByPrefix(final String prefix);
 
-    boolean isLeaf();
+    /*
+     * Returns the immutable views of the children, whose name or any of
+     * their aliases start with the provided prefix (ignoring case).
+     */
+    Set<CommandNode> childrenWithPrefix(final String prefix);
+
+    List<String> completeChildren(final String prefix);
+
+    Collection<InternalCommandNode<S>> children();
 
-    Optional<InternalCommandNode<S>> parent();
+    /*
+     * An immutable view of the children of this node. The same instance is
+     * returned, until the children change.
+     */
+    Set<CommandNode> immutableChildren();
+
+    /*
+     * Maps the folded names and aliases of the children of this node to
+     * their immutable views. The same instance is returned, until the
+     * children change.
+     */
+    BKTree<CommandNode> childSuggestionIndex();
+
+    boolean isLeaf();
 
     Optional<CommandModule<S>> command();
 
     void command(final CommandModule<S> command);
 
+    /*
+     * Creates a copy of this node, that shares the children of this node,
+     * rather than copying them. Adding or removing children of the copy
+     * doesn't affect this node and vice versa.
+     */
+    InternalCommandNode<S> copy();
+
     CommandNode asImmutable();
 
-    static <S> InternalCommandNode<S> of(final String name, final Set<String> aliases, final @Nullable InternalCommandNode<S> parent) {
-        return new InternalCommandNodeImpl<>(name, aliases, parent);
+    static <S> InternalCommandNode<S> of(final String name, final Set<String> aliases) {
+        return new InternalCommandNodeImpl<>(name, aliases);
     }
 }
@@ -1,31 +1,67 @@
 package grapefruit.command.tree.node;
 
 import grapefruit.command.CommandModule;
+import grapefruit.command.util.BKTree;
 import grapefruit.command.util.ToStringer;
 import org.jspecify.annotations.Nullable;
 
-import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
-import java.util.Objects;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static grapefruit.command.util.StringUtil.containsIgnoreCase;
+import static grapefruit.command.util.StringUtil.fold;
 import static java.util.Objects.requireNonNull;
 
 final class InternalCommandNodeImpl<S> implements InternalCommandNode<S> {
     private final String name;
     private final Set<String> aliases;
-    private final Set<InternalCommandNode<S>> children;
-    private final WeakReference<InternalCommandNode<S>> parent;
+    /*
+     * Children mapped to their folded names. Both this and the index below
+     * share their structure with the node this one was copied from, so
+     * copying a node doesn't grow with the number of its children.
+     */
+    private final RadixTree<InternalCommandNode<S>> children;
+    // Children mapped to their folded names and aliases, used for exact and prefix lookups
+    private final RadixTree<InternalCommandNode<S>> childIndex;
     private @Nullable CommandModule<S> command;
+    /*
+     * Immutable views of this node and of its children. They're created when
+     * first requested, and discarded whenever the node or its children
+     * change. Nodes are no longer modified once their graph has been
+     * published, so the views are shared by every exception and lookup
+     * afterwards. Racing to create a view is harmless, as views are
+     * immutable, and equivalent to each other.
+     */
+    private @Nullable CommandNode immutable;
+    private @Nullable Set<CommandNode> immutableChildren;
+    // The index is modified while it's being built, hence the need for volatile
+    private volatile @Nullable BKTree<CommandNode> childSuggestionIndex;
 
-    public InternalCommandNodeImpl(final String name, final Set<String> aliases, final @Nullable InternalCommandNode<S> parent) {
+    public InternalCommandNodeImpl(final String name, final Set<String> aliases) {
         this.name = requireNonNull(name, "name cannot be null");
         // Create a mutable copy of aliases
         this.aliases = new HashSet<>(requireNonNull(aliases, "aliases cannot be null"));
-        this.children = new HashSet<>();
-        this.parent = new WeakReference<>(parent);
+        this.children = new RadixTree<>();
+        this.childIndex = new RadixTree<>();
+    }
+
+    private InternalCommandNodeImpl(final InternalCommandNodeImpl<S> node) {
+        this.name = node.name;
+        this.aliases = new HashSet<>(node.aliases);
+        this.children = node.children.copy();
+        this.childIndex = node.childIndex.copy();
+        this.command = node.command;
+        // The copy has the same name, aliases and children, so the views are still valid
+        this.immutable = node.immutable;
+        this.immutableChildren = node.immutableChildren;
+        this.childSuggestionIndex = node.childSuggestionIndex;
     }
 
     @Override
@@ -41,6 +77,16 @@ final class InternalCommandNodeImpl<S> implements InternalCommandNode<S> {
     @Override
     public void mergeAliases(final Set<String> aliases) {
         this.aliases.addAll(aliases);
+        this.immutable = null;
+    }
+
+    @Override
+    public void mergeChildAliases(final InternalCommandNode<S> child, final Set<String> aliases) {
+        child.mergeAliases(aliases);
+        // Make sure the new aliases can be looked up from this node
+        for (final String alias : aliases) index(child, alias);
+        this.immutableChildren = null;
+        this.childSuggestionIndex = null;
     }
 
     @Override
@@ -50,32 +96,146 @@ final class InternalCommandNodeImpl<S> implements InternalCommandNode<S> {
 
     @Override
     public void addChild(final InternalCommandNode<S> child) {
-        this.children.add(child);
+        this.children.putIfAbsent(fold(child.name()), child);
+        this.immutableChildren = null;
+        this.childSuggestionIndex = null;
+        index(child, child.name());
+        for (final String alias : child.aliases()) {
+            index(child, alias);
+        }
     }
 
     @Override
     public void removeChild(final InternalCommandNode<S> child) {
-        this.children.remove(child);
+        if (!this.children.remove(fold(child.name()), child)) return;
+
+        this.immutableChildren = null;
+        this.childSuggestionIndex = null;
+        unindex(child, child.name());
+        for (final String alias : child.aliases()) {
+            unindex(child, alias);
+        }
+    }
+
+    @Override
+    public void replaceChild(final InternalCommandNode<S> child, final InternalCommandNode<S> replacement) {
+        final String name = fold(child.name());
+        if (this.children.get(name) != child) return;
+
+        /*
+         * The replacement is a copy of the child, its immutable view is the
+         * same instance, thus the cached views of this node remain valid.
+         */
+        this.children.replace(name, child, replacement);
+        this.childIndex.replace(name, child, replacement);
+        for (final String alias : child.aliases()) {
+            this.childIndex.replace(fold(alias), child, replacement);
+        }
+    }
+
+    private void index(final InternalCommandNode<S> child, final String alias) {
+        /*
+         * If a folded alias is already taken by another child, we keep the
+         * existing mapping, so that lookups remain stable.
+         */
+        final String key = fold(alias);
+        this.childIndex.putIfAbsent(key, child);
+    }
+
+    private void unindex(final InternalCommandNode<S> child, final String alias) {
+        final String key = fold(alias);
+        if (!this.childIndex.remove(key, child)) return;
+
+        // The key may have shadowed the name or an alias of another child, which takes over now
+        for (final InternalCommandNode<S> other : this.children.values()) {
+            if (declares(other, key)) {
+                this.childIndex.putIfAbsent(key, other);
+                return;
+            }
+        }
+    }
+
+    private static boolean declares(final InternalCommandNode<?> child, final String key) {
+        if (fold(child.name()).equals(key)) return true;
+        for (final String alias : child.aliases()) {
+            if (fold(alias).equals(key)) return true;
+        }
+
+        return false;
     }
 
     @Override
     public Optional<InternalCommandNode<S>> queryChild(final String query) {
-        return this.children.stream().filter(c -> c.matches(query)).findFirst();
+        return Optional.ofNullable(this.childIndex.get(fold(query)));
+    }
+
+    @Override
+    public Optional<InternalCommandNode<S>> queryChildByPrefix(final String prefix) {
+        final String key = fold(prefix);
+        // Every child would match an empty prefix
+        if (key.isEmpty()) return Optional.empty();
+
+        return Optional.ofNullable(this.childIndex.uniqueWithPrefix(key));
     }
 
     @Override
-    public Set<InternalCommandNode<S>> children() {
-        return this.children;
+    public Set<CommandNode> childrenWithPrefix(final String prefix) {
+        final Set<CommandNode> result = new LinkedHashSet<>();
+        this.childIndex.forEachWithPrefix(fold(prefix), (key, child) -> result.add(child.asImmutable()));
+        return Collections.unmodifiableSet(result);
     }
 
     @Override
-    public boolean isLeaf() {
-        return this.children.isEmpty();
+    public List<String> completeChildren(final String prefix) {
+        final List<String> result = new ArrayList<>();
+        this.childIndex.forEachWithPrefix(fold(prefix), (key, child) -> result.add(original(key, child)));
+        return result;
+    }
+
+    // Find the name or alias of the child, that was folded into the provided key
+    private static String original(final String key, final InternalCommandNode<?> child) {
+        if (fold(child.name()).equals(key)) return child.name();
+        for (final String alias : child.aliases()) {
+            if (fold(alias).equals(key)) return alias;
+        }
+
+        return key;
     }
 
     @Override
-    public Optional<InternalCommandNode<S>> parent() {
-        return Optional.ofNullable(this.parent.get());
+    public Collection<InternalCommandNode<S>> children() {
+        return Collections.unmodifiableList(this.children.values());
+    }
+
+    @Override
+    public Set<CommandNode> immutableChildren() {
+        Set<CommandNode> children = this.immutableChildren;
+        if (children == null) {
+            children = this.children.values().stream()
+                    .map(InternalCommandNode::asImmutable)
+                    .collect(Collectors.toUnmodifiableSet());
+            this.immutableChildren = children;
+        }
+
+        return children;
+    }
+
+    @Override
+    public BKTree<CommandNode> childSuggestionIndex() {
+        BKTree<CommandNode> index = this.childSuggestionIndex;
+        if (index == null) {
+            final BKTree.Builder<CommandNode> builder = BKTree.builder();
+            this.childIndex.forEachWithPrefix("", (key, child) -> builder.putIfAbsent(key, child.asImmutable()));
+            index = builder.build();
+            this.childSuggestionIndex = index;
+        }
+
+        return index;
+    }
+
+    @Override
+    public boolean isLeaf() {
+        return this.children.isEmpty();
     }
 
     @Override
@@ -88,9 +248,20 @@ final class InternalCommandNodeImpl<S> implements InternalCommandNode<S> {
         this.command = requireNonNull(command, "command cannot be null");
     }
 
+    @Override
+    public InternalCommandNode<S> copy() {
+        return new InternalCommandNodeImpl<>(this);
+    }
+
     @Override
     public CommandNode asImmutable() {
-        return new CommandNodeImpl(this.name, Set.copyOf(this.aliases));
+        CommandNode immutable = this.immutable;
+        if (immutable == null) {
+            immutable = new CommandNodeImpl(this.name, Set.copyOf(this.aliases));
+            this.immutable = immutable;
+        }
+
+        return immutable;
     }
 
     @Override
@@ -101,18 +272,4 @@ final class InternalCommandNodeImpl<S> implements InternalCommandNode<S> {
                 .append("command", this.command)
                 .toString();
     }
-
-    @Override
-    public boolean equals(final Object o) {
-        if (o == null || getClass() != o.getClass()) return false;
-        final InternalCommandNodeImpl<?> that = (InternalCommandNodeImpl<?>) o;
-        return Objects.equals(this.name, that.name)
-                && Objects.equals(this.aliases, that.aliases)
-                && Objects.equals(this.parent, that.parent);
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(this.name, this.aliases, this.parent);
-    }
 }
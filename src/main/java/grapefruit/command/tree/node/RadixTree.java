@@ -0,0 +1,319 @@
+package grapefruit.command.tree.node;
+
+import grapefruit.command.util.ToStringer;
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * A compressed prefix tree mapping string keys to values. Each edge holds
+ * a label of at least one character, and no two edges leaving the same node
+ * begin with the same character, so walking to any prefix costs O(prefix
+ * length), regardless of how many keys are stored.
+ *
+ * Keys are compared as is, callers are expected to fold them beforehand,
+ * if case-insensitive lookups are required.
+ *
+ * Copies share their nodes with the tree they were copied from. Nodes are
+ * only modified in place by the tree that created them, other trees copy
+ * them first, along with the nodes leading to them. Thus copying a tree
+ * costs O(1), and modifying a copy costs O(key length), regardless of how
+ * many keys are stored.
+ */
+final class RadixTree<V> {
+    // Marks prefixes whose keys are mapped to more than one value
+    private static final Object AMBIGUOUS = new Object();
+    // Identifies the nodes this tree may modify in place
+    private Object owner = new Object();
+    private Node<V> root;
+    private int size;
+
+    RadixTree() {
+        this.root = new Node<>("", this.owner);
+    }
+
+    private RadixTree(final Node<V> root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    // Creates a copy of this tree. Modifying the copy doesn't affect this instance and vice versa.
+    RadixTree<V> copy() {
+        // From now on, neither tree may modify the nodes in place
+        this.owner = new Object();
+        return new RadixTree<>(this.root, this.size);
+    }
+
+    // Returns the node itself if it's owned by this tree, otherwise a copy of it.
+    private Node<V> own(final Node<V> node) {
+        if (node.owner == this.owner) return node;
+
+        final Node<V> copy = new Node<>(node.label, this.owner);
+        copy.key = node.key;
+        copy.value = node.value;
+        copy.children.putAll(node.children);
+        return copy;
+    }
+
+    // Same as own, except that the copy replaces the child in its (owned) parent.
+    private Node<V> own(final Node<V> parent, final Node<V> child) {
+        final Node<V> owned = own(child);
+        if (owned != child) parent.children.put(owned.label.charAt(0), owned);
+
+        return owned;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    // Returns the value the provided key is mapped to, or null, if there's no such key.
+    @Nullable V get(final String key) {
+        requireNonNull(key, "key cannot be null");
+        final @Nullable Node<V> node = exact(key);
+        return node == null ? null : node.value;
+    }
+
+    /*
+     * Associates the provided value with the provided key, unless the key is
+     * already mapped to a value, in which case the existing value is returned.
+     */
+    @Nullable V putIfAbsent(final String key, final V value) {
+        requireNonNull(key, "key cannot be null");
+        requireNonNull(value, "value cannot be null");
+
+        // Nothing needs to be copied, if the key is already mapped
+        final @Nullable V existing = get(key);
+        if (existing != null) return existing;
+
+        this.root = own(this.root);
+        Node<V> node = this.root;
+        int i = 0;
+        while (i < key.length()) {
+            final char c = key.charAt(i);
+            final @Nullable Node<V> next = node.children.get(c);
+            if (next == null) {
+                final Node<V> leaf = new Node<>(key.substring(i), this.owner);
+                leaf.key = key;
+                leaf.value = value;
+                node.children.put(c, leaf);
+                this.size++;
+                return null;
+            }
+
+            final Node<V> child = own(node, next);
+            final int common = commonPrefixLength(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge, so that the common part becomes a node on its own
+                final Node<V> split = new Node<>(child.label.substring(0, common), this.owner);
+                child.label = child.label.substring(common);
+                split.children.put(child.label.charAt(0), child);
+                node.children.put(c, split);
+                node = split;
+            } else {
+                node = child;
+            }
+
+            i += common;
+        }
+
+        node.key = key;
+        node.value = value;
+        this.size++;
+        return null;
+    }
+
+    /*
+     * Maps the provided key to the replacement, if it's currently mapped to
+     * the provided value.
+     */
+    boolean replace(final String key, final V value, final V replacement) {
+        requireNonNull(key, "key cannot be null");
+        requireNonNull(value, "value cannot be null");
+        requireNonNull(replacement, "replacement cannot be null");
+        if (!value.equals(get(key))) return false;
+
+        this.root = own(this.root);
+        Node<V> node = this.root;
+        for (int i = 0; i < key.length(); i += node.label.length()) {
+            node = own(node, node.children.get(key.charAt(i)));
+        }
+
+        node.value = replacement;
+        return true;
+    }
+
+    /*
+     * Removes the mapping of the provided key, if it's currently mapped to
+     * the provided value.
+     */
+    boolean remove(final String key, final V value) {
+        requireNonNull(key, "key cannot be null");
+        requireNonNull(value, "value cannot be null");
+        if (!value.equals(get(key))) return false;
+
+        final Deque<Node<V>> path = new ArrayDeque<>();
+        this.root = own(this.root);
+        Node<V> node = this.root;
+        for (int i = 0; i < key.length(); i += node.label.length()) {
+            path.push(node);
+            node = own(node, node.children.get(key.charAt(i)));
+        }
+
+        node.key = null;
+        node.value = null;
+        this.size--;
+
+        // Get rid of nodes that are no longer needed
+        while (!path.isEmpty()) {
+            final Node<V> parent = path.pop();
+            if (node.children.isEmpty() && node.value == null) {
+                parent.children.remove(node.label.charAt(0));
+            } else if (node.children.size() == 1 && node.value == null) {
+                // Merge the node with its only child
+                final Node<V> child = own(node.children.values().iterator().next());
+                child.label = node.label + child.label;
+                parent.children.put(child.label.charAt(0), child);
+            }
+
+            node = parent;
+        }
+
+        return true;
+    }
+
+    // Returns every value, in lexicographic order of their keys.
+    List<V> values() {
+        final List<V> values = new ArrayList<>(this.size);
+        forEach(this.root, (key, value) -> values.add(value));
+        return values;
+    }
+
+    /*
+     * Invokes the provided action for each key starting with the provided
+     * prefix, and the value mapped to it, in lexicographic order of the keys.
+     */
+    void forEachWithPrefix(final String prefix, final BiConsumer<String, V> action) {
+        requireNonNull(prefix, "prefix cannot be null");
+        requireNonNull(action, "action cannot be null");
+
+        final @Nullable Node<V> node = find(prefix);
+        if (node != null) forEach(node, action);
+    }
+
+    /*
+     * Returns the value every key starting with the provided prefix is mapped
+     * to, or null, if there are no such keys, or if they're mapped to
+     * different values. The search stops at the second distinct value, so
+     * ambiguous prefixes are rejected without visiting each of their keys.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable V uniqueWithPrefix(final String prefix) {
+        requireNonNull(prefix, "prefix cannot be null");
+
+        final @Nullable Node<V> node = find(prefix);
+        if (node == null) return null;
+
+        final @Nullable Object value = unique(node, null);
+        return value == AMBIGUOUS ? null : (V) value;
+    }
+
+    // Returns the node the provided key ends at, or null, if there's no such node.
+    private @Nullable Node<V> exact(final String key) {
+        Node<V> node = this.root;
+        int i = 0;
+        while (i < key.length()) {
+            final @Nullable Node<V> child = node.children.get(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) return null;
+
+            i += child.label.length();
+            node = child;
+        }
+
+        return node;
+    }
+
+    // Returns the node, whose subtree holds exactly the keys starting with the provided prefix
+    private @Nullable Node<V> find(final String prefix) {
+        Node<V> node = this.root;
+        int i = 0;
+        while (i < prefix.length()) {
+            final Node<V> child = node.children.get(prefix.charAt(i));
+            if (child == null) return null;
+
+            final int remaining = prefix.length() - i;
+            if (child.label.length() >= remaining) {
+                // The prefix ends somewhere on this edge
+                return child.label.regionMatches(0, prefix, i, remaining) ? child : null;
+            }
+
+            if (!prefix.startsWith(child.label, i)) return null;
+
+            i += child.label.length();
+            node = child;
+        }
+
+        return node;
+    }
+
+    private static @Nullable Object unique(final Node<?> node, @Nullable Object found) {
+        if (node.value != null) {
+            if (found != null && !found.equals(node.value)) return AMBIGUOUS;
+
+            found = node.value;
+        }
+
+        for (final Node<?> child : node.children.values()) {
+            found = unique(child, found);
+            if (found == AMBIGUOUS) return AMBIGUOUS;
+        }
+
+        return found;
+    }
+
+    private static <V> void forEach(final Node<V> node, final BiConsumer<String, V> action) {
+        if (node.value != null) action.accept(node.key, node.value);
+        for (final Node<V> child : node.children.values()) forEach(child, action);
+    }
+
+    private static int commonPrefixLength(final String label, final String key, final int offset) {
+        final int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) i++;
+
+        return i;
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("size", this.size)
+                .toString();
+    }
+
+    private static final class Node<V> {
+        private final Map<Character, Node<V>> children = new TreeMap<>();
+        // The tree that created this node, only that tree may modify it in place
+        private final Object owner;
+        private String label;
+        private @Nullable String key;
+        private @Nullable V value;
+
+        private Node(final String label, final Object owner) {
+            this.label = label;
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package grapefruit.command.util;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/*
+ * A Burkhard-Keller tree mapping string keys to values, indexed by the
+ * Levenshtein distance of the keys. Each child of a node is stored at the
+ * distance of its key from the key of the node, so because of the triangle
+ * inequality, searching for keys within distance d of a query only has to
+ * descend into children at distances [n - d, n + d], where n is the distance
+ * of the query from the node. For small values of d, this visits a fraction
+ * of the keys.
+ *
+ * Keys are compared as is, callers are expected to fold them beforehand, if
+ * case-insensitive lookups are required. Trees are assembled using a
+ * builder, and are immutable once built, so they can be shared and searched
+ * from any number of threads.
+ */
+public final class BKTree<V> {
+    private static final Comparator<Match<?>> MATCH_ORDER = Comparator.<Match<?>>comparingInt(Match::distance)
+            .thenComparing(Match::key);
+    private final @Nullable Node<V> root;
+    private final int size;
+
+    private BKTree(final @Nullable Node<V> root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /*
+     * Returns the values of the keys within the provided distance of the
+     * query, closest first. Keys at the same distance are ordered
+     * lexicographically. Values mapped to multiple matching keys are only
+     * included once, at the position of their closest key. At most limit
+     * values are returned.
+     */
+    public List<V> search(final String query, final int maxDistance, final int limit) {
+        requireNonNull(query, "query cannot be null");
+        if (maxDistance < 0) throw new IllegalArgumentException("maxDistance cannot be negative");
+        if (limit < 0) throw new IllegalArgumentException("limit cannot be negative");
+        if (this.root == null || limit == 0) return List.of();
+
+        final List<Match<V>> matches = new ArrayList<>();
+        final Deque<Node<V>> queue = new ArrayDeque<>();
+        queue.add(this.root);
+        while (!queue.isEmpty()) {
+            final Node<V> node = queue.poll();
+            final int distance = distance(node.key, query);
+            if (distance <= maxDistance) matches.add(new Match<>(node.key, node.value, distance));
+
+            // Only these children can be within maxDistance of the query
+            final int to = Math.min(distance + maxDistance, node.children.length - 1);
+            for (int i = Math.max(1, distance - maxDistance); i <= to; i++) {
+                if (node.children[i] != null) queue.add(node.children[i]);
+            }
+        }
+
+        matches.sort(MATCH_ORDER);
+        final Set<V> result = new LinkedHashSet<>();
+        for (final Match<V> match : matches) {
+            result.add(match.value());
+            if (result.size() == limit) break;
+        }
+
+        return List.copyOf(result);
+    }
+
+    /*
+     * Computes the Levenshtein distance of the provided strings, that is the
+     * number of single character insertions, deletions and substitutions
+     * required to turn one into the other.
+     */
+    public static int distance(final CharSequence a, final CharSequence b) {
+        requireNonNull(a, "a cannot be null");
+        requireNonNull(b, "b cannot be null");
+        if (a.length() < b.length()) return distance(b, a);
+        if (b.isEmpty()) return a.length();
+
+        // Two rows of the distance matrix are enough, b being the shorter string keeps them short
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            final char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                final int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[b.length()];
+    }
+
+    @Override
+    public String toString() {
+        return ToStringer.create(this)
+                .append("size", this.size)
+                .toString();
+    }
+
+    public static final class Builder<V> {
+        private @Nullable Node<V> root;
+        private int size;
+
+        private Builder() {}
+
+        /*
+         * Associates the provided value with the provided key, unless the key
+         * has been added already, in which case the existing value is kept.
+         */
+        public Builder<V> putIfAbsent(final String key, final V value) {
+            requireNonNull(key, "key cannot be null");
+            requireNonNull(value, "value cannot be null");
+            if (this.root == null) {
+                this.root = new Node<>(key, value);
+                this.size++;
+                return this;
+            }
+
+            Node<V> node = this.root;
+            while (true) {
+                final int distance = distance(node.key, key);
+                if (distance == 0) return this;
+
+                final @Nullable Node<V> child = node.child(distance);
+                if (child == null) {
+                    node.child(distance, new Node<>(key, value));
+                    this.size++;
+                    return this;
+                }
+
+                node = child;
+            }
+        }
+
+        /*
+         * Builds the tree. The nodes are handed over to the tree, so the
+         * builder is reset, and starts over from an empty tree afterwards.
+         */
+        public BKTree<V> build() {
+            final BKTree<V> tree = new BKTree<>(this.root, this.size);
+            this.root = null;
+            this.size = 0;
+            return tree;
+        }
+
+        @Override
+        public String toString() {
+            return ToStringer.create(this)
+                    .append("size", this.size)
+                    .toString();
+        }
+    }
+
+    private record Match<V>(String key, V value, int distance) {}
+
+    private static final class Node<V> {
+        private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+        private final String key;
+        private final V value;
+        // Children indexed by their distance from this node
+        private @Nullable Node<V>[] children = noChildren();
+
+        private Node(final String key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] noChildren() {
+            return (Node<V>[]) NO_CHILDREN;
+        }
+
+        private @Nullable Node<V> child(final int distance) {
+            return distance < this.children.length ? this.children[distance] : null;
+        }
+
+        private void child(final int distance, final Node<V> child) {
+            if (distance >= this.children.length) this.children = Arrays.copyOf(this.children, distance + 1);
+
+            this.children[distance] = child;
+        }
+    }
+}
@@ -20,6 +20,47 @@ public final class StringUtil {
         return arg.regionMatches(true, 0, prefix, 0, prefix.length());
     }
 
+    /*
+     * Folds the provided character in a way that two characters fold to the
+     * same value if, and only if String#equalsIgnoreCase would consider them
+     * equal.
+     */
+    public static char fold(final char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    public static String fold(final String arg) {
+        for (int i = 0; i < arg.length(); i++) {
+            final char c = arg.charAt(i);
+            if (fold(c) != c) {
+                // Only allocate a new string if there's something to fold
+                final char[] chars = arg.toCharArray();
+                for (int j = i; j < chars.length; j++) chars[j] = fold(chars[j]);
+
+                return new String(chars);
+            }
+        }
+
+        return arg;
+    }
+
+    /*
+     * Equivalent to String#equalsIgnoreCase, except that the second argument
+     * can be any character sequence, so it doesn't have to be copied into a
+     * string first.
+     */
+    public static boolean equalsIgnoreCase(final String arg, final CharSequence other) {
+        if (arg.length() != other.length()) return false;
+
+        for (int i = 0; i < arg.length(); i++) {
+            final char a = arg.charAt(i);
+            final char b = other.charAt(i);
+            if (a != b && fold(a) != fold(b)) return false;
+        }
+
+        return true;
+    }
+
     public static boolean containsWhitespace(final String arg) {
         for (final char c : arg.toCharArray()) {
             if (Character.isWhitespace(c)) return true;
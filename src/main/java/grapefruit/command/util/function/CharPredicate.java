@@ -1,7 +0,0 @@
-package grapefruit.command.util.function;
-
-@FunctionalInterface
-public interface CharPredicate {
-
-    boolean test(final char c);
-}
@@ -10,10 +10,13 @@ import static java.util.Objects.requireNonNull;
 final class KeyImpl<T> implements Key<T> {
     private final TypeToken<T> type;
     private final String name;
+    // Keys are looked up frequently, so compute the hash code only once
+    private final int hashCode;
 
     KeyImpl(final TypeToken<T> type, final String name) {
         this.type = requireNonNull(type, "type cannot be null");
         this.name = requireNonNull(name, "name cannot be null");
+        this.hashCode = Objects.hash(this.type, this.name);
     }
 
     @Override
@@ -36,13 +39,16 @@ final class KeyImpl<T> implements Key<T> {
 
     @Override
     public boolean equals(final Object o) {
+        if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         final KeyImpl<?> key = (KeyImpl<?>) o;
-        return Objects.equals(this.type, key.type) && Objects.equals(this.name, key.name);
+        return this.hashCode == key.hashCode
+                && Objects.equals(this.name, key.name)
+                && Objects.equals(this.type, key.type);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.type, this.name);
+        return this.hashCode;
     }
 }
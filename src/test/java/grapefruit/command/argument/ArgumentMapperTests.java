@@ -5,13 +5,17 @@ import grapefruit.command.argument.mapper.builtin.EnumArgumentMapper;
 import grapefruit.command.mock.NilCommandContext;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import static grapefruit.command.argument.mapper.builtin.NumericArgumentMapper.byteMapper;
 import static grapefruit.command.argument.mapper.builtin.NumericArgumentMapper.floatMapper;
 import static grapefruit.command.argument.mapper.builtin.NumericArgumentMapper.intMapper;
+import static grapefruit.command.argument.mapper.builtin.NumericArgumentMapper.longMapper;
 import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.greedy;
 import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.quotable;
 import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.regex;
@@ -70,6 +74,31 @@ public class ArgumentMapperTests {
         assertThrows(ArgumentMappingException.class, () -> intMapper().tryMap(new NilCommandContext(), inputOf(arg)));
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "127,127",
+            "-128,-128",
+            "+5,5"
+    })
+    public void numericArgumentMapper_byte_validInput(final String arg, final byte expected) {
+        assertDoesNotThrow(() -> assertEquals(expected, byteMapper().tryMap(new NilCommandContext(), inputOf(arg)).byteValue()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "128",
+            "-129",
+            "1.5"
+    })
+    public void numericArgumentMapper_byte_invalidInput(final String arg) {
+        assertThrows(ArgumentMappingException.class, () -> byteMapper().tryMap(new NilCommandContext(), inputOf(arg)));
+    }
+
+    @Test
+    public void numericArgumentMapper_long_validInput() {
+        assertDoesNotThrow(() -> assertEquals(Long.MIN_VALUE, longMapper().tryMap(new NilCommandContext(), inputOf(Long.toString(Long.MIN_VALUE))).longValue()));
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {
             "44",
@@ -93,5 +122,29 @@ public class ArgumentMapperTests {
         final EnumArgumentMapper<Object, TimeUnit> mapper = EnumArgumentMapper.lenient(TimeUnit.class);
         assertDoesNotThrow(() -> assertEquals(TimeUnit.SECONDS, mapper.tryMap(new NilCommandContext(), inputOf("seconds"))));
         assertDoesNotThrow(() -> assertEquals(TimeUnit.SECONDS, mapper.tryMap(new NilCommandContext(), inputOf("SECONDS"))));
+        assertDoesNotThrow(() -> assertEquals(TimeUnit.SECONDS, mapper.tryMap(new NilCommandContext(), inputOf("SeCoNdS"))));
+        assertThrows(ArgumentMappingException.class, () -> mapper.tryMap(new NilCommandContext(), inputOf("second")));
+    }
+
+    @Test
+    public void enumArgumentMapper_suggestions() {
+        final EnumArgumentMapper<Object, TimeUnit> lenient = EnumArgumentMapper.lenient(TimeUnit.class);
+        final EnumArgumentMapper.EnumMappingException lenientEx = assertThrows(
+                EnumArgumentMapper.EnumMappingException.class,
+                () -> lenient.tryMap(new NilCommandContext(), inputOf("SECNDS"))
+        );
+        assertEquals(List.of("seconds"), lenientEx.suggestions(2, 3));
+
+        final EnumArgumentMapper<Object, TimeUnit> strict = EnumArgumentMapper.strict(TimeUnit.class);
+        final EnumArgumentMapper.EnumMappingException strictEx = assertThrows(
+                EnumArgumentMapper.EnumMappingException.class,
+                () -> strict.tryMap(new NilCommandContext(), inputOf("MINUTE"))
+        );
+        assertEquals(List.of("MINUTES"), strictEx.suggestions(1, 3));
+        // Strict mappers don't ignore case
+        assertEquals(List.of(), assertThrows(
+                EnumArgumentMapper.EnumMappingException.class,
+                () -> strict.tryMap(new NilCommandContext(), inputOf("minutes"))
+        ).suggestions(2, 3));
     }
 }
@@ -1,9 +1,12 @@
 package grapefruit.command.argument;
 
+import grapefruit.command.util.key.Key;
 import org.junit.jupiter.api.Test;
 
 import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.greedy;
 import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class CommandChainTests {
@@ -135,4 +138,45 @@ public class CommandChainTests {
                 .then(factory.boolFlag("hello").shorthand('a').build())
                 .build());
     }
+
+    @Test
+    public void build_immutable() {
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain.FlagBuilder<Object> builder = factory.newChain()
+                .then(factory.literal("test").build())
+                .arguments()
+                .then(factory.required(Key.named(String.class, "arg")).mapWith(word()).build())
+                .flags()
+                .then(factory.boolFlag("first").build());
+        final CommandChain<Object> chain = builder.build();
+        // Elements added after the chain has been built must not show up in the chain
+        builder.then(factory.boolFlag("second").build());
+
+        assertEquals(1, chain.flagCount());
+        assertSame(chain.flags(), chain.flags());
+        assertSame(chain.arguments(), chain.arguments());
+        assertSame(chain.route(), chain.route());
+        assertThrows(UnsupportedOperationException.class, () -> chain.flags().clear());
+    }
+
+    @Test
+    public void indexedAccessors() {
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> chain = factory.newChain()
+                .then(factory.literal("test").build())
+                .then(factory.literal("foo").build())
+                .arguments()
+                .then(factory.required(Key.named(String.class, "arg")).mapWith(word()).build())
+                .flags()
+                .then(factory.boolFlag("hello").build())
+                .build();
+
+        assertEquals(2, chain.routeLength());
+        assertEquals(chain.route().get(1), chain.literalAt(1));
+        assertEquals(1, chain.argumentCount());
+        assertEquals(chain.arguments().getFirst(), chain.argumentAt(0));
+        assertEquals(1, chain.flagCount());
+        assertEquals(chain.flags().getFirst(), chain.flagAt(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> chain.flagAt(1));
+    }
 }
@@ -0,0 +1,88 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
+import grapefruit.command.util.key.Key;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommandContextTests {
+    private static final Key<String> ARG_KEY = Key.named(String.class, "arg");
+    private static final Key<Boolean> FLAG_KEY = Key.named(Boolean.class, "flag");
+    private static final Key<String> INJECTED_KEY = Key.named(String.class, "injected");
+
+    private static CommandContextImpl<Object> createContext() {
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> chain = factory.newChain()
+                .then(factory.literal("test").build())
+                .arguments()
+                .then(factory.required(ARG_KEY).mapWith(word()).build())
+                .flags()
+                .then(factory.boolFlag(FLAG_KEY).build())
+                .build();
+
+        return new CommandContextImpl<>(new Object(), DispatchPlan.compile(chain));
+    }
+
+    @Test
+    public void store_chainKey() {
+        final CommandContextImpl<Object> context = createContext();
+        assertFalse(context.has(ARG_KEY));
+        context.store(Key.named(String.class, "arg"), "hello");
+        assertTrue(context.has(ARG_KEY));
+        assertEquals("hello", context.require(ARG_KEY));
+        assertThrows(IllegalStateException.class, () -> context.store(ARG_KEY, "world"));
+    }
+
+    @Test
+    public void store_foreignKey() {
+        final CommandContextImpl<Object> context = createContext();
+        assertNull(context.nullable(INJECTED_KEY));
+        context.store(INJECTED_KEY, "hello");
+        assertEquals("hello", context.require(INJECTED_KEY));
+        assertThrows(IllegalStateException.class, () -> context.store(INJECTED_KEY, "world"));
+    }
+
+    @Test
+    public void replace_remove() {
+        final CommandContextImpl<Object> context = createContext();
+        assertFalse(context.replace(FLAG_KEY, true));
+        assertTrue(context.replace(FLAG_KEY, false));
+        assertEquals(false, context.require(FLAG_KEY));
+        assertTrue(context.remove(FLAG_KEY));
+        assertFalse(context.has(FLAG_KEY));
+        assertFalse(context.remove(FLAG_KEY));
+        assertFalse(context.remove(INJECTED_KEY));
+    }
+
+    @Test
+    public void asMap() {
+        final CommandContextImpl<Object> context = createContext();
+        context.store(ARG_KEY, "hello");
+        context.store(INJECTED_KEY, "world");
+        assertEquals(Map.of(ARG_KEY, "hello", INJECTED_KEY, "world"), context.asMap());
+    }
+
+    @Test
+    public void deadline_createdOnDemand() {
+        final CommandContextImpl<Object> context = createContext();
+        assertFalse(context.expired());
+        final Deadline deadline = context.deadline();
+        assertSame(deadline, context.deadline());
+
+        // Cancelling the deadline of one context doesn't affect others
+        deadline.cancel();
+        assertTrue(context.expired());
+        assertThrows(CommandTimeoutException.class, context::throwIfExpired);
+        assertFalse(createContext().deadline().expired());
+    }
+}
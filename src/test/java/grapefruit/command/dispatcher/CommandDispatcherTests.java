@@ -1,6 +1,9 @@
 package grapefruit.command.dispatcher;
 
+import grapefruit.command.CommandException;
 import grapefruit.command.CommandModule;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
 import grapefruit.command.argument.CommandArgumentException;
 import grapefruit.command.argument.DuplicateFlagException;
 import grapefruit.command.argument.FlagGroupException;
@@ -13,23 +16,45 @@ import grapefruit.command.mock.ColorArgumentMapper;
 import grapefruit.command.mock.TestArgumentMapper;
 import grapefruit.command.mock.TestCommandModule;
 import grapefruit.command.tree.NoSuchCommandException;
+import grapefruit.command.tree.node.CommandNode;
 import grapefruit.command.util.key.Key;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.word;
 import static grapefruit.command.mock.AlwaysCondition.fail;
 import static grapefruit.command.testutil.ExtraAssertions.assertContainsAll;
 import static grapefruit.command.testutil.Helper.completions;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -145,6 +170,114 @@ public class CommandDispatcherTests {
         assertThrows(NoSuchCommandException.class, () -> dispatcher.dispatch(new Object(), "test bar"));
     }
 
+    @Test
+    public void register_oneByOne() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final List<CommandModule<Object>> commands = new ArrayList<>();
+        // Names sharing prefixes, so that snapshots share (and split) the same radix tree edges
+        for (int i = 0; i < 64; i++) {
+            final String name = "cmd" + i;
+            final CommandModule<Object> command = TestCommandModule.of(factory -> factory.newChain()
+                    .then(factory.literal(name).aliases("c" + name).build())
+                    .build());
+            commands.add(command);
+            dispatcher.register(command);
+            assertTrue(dispatcher.isCommand(name));
+            assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "cmd0"));
+        }
+
+        for (int i = 0; i < commands.size(); i += 2) dispatcher.unregister(commands.get(i));
+
+        for (int i = 0; i < commands.size(); i++) {
+            final String input = "ccmd" + i;
+            if (i % 2 == 0) {
+                assertFalse(dispatcher.isCommand(input));
+                assertThrows(NoSuchCommandException.class, () -> dispatcher.dispatch(new Object(), input));
+            } else {
+                assertTrue(dispatcher.isCommand(input));
+                assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), input));
+            }
+        }
+
+        assertThrows(IllegalStateException.class, () -> dispatcher.unregister(commands.getFirst()));
+        assertThrows(IllegalStateException.class, () -> dispatcher.register(commands.get(1)));
+    }
+
+    @Test
+    public void dispatch_concurrentRegistrations() throws Exception {
+        final int threads = 32;
+        final int registrations = 500;
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final AtomicInteger executions = new AtomicInteger();
+        final CommandModule<Object> stable = new CountingCommandModule(executions, "stable");
+        final CommandModule<Object> flapping = new CountingCommandModule(new AtomicInteger(), "flapping");
+        final List<CommandModule<Object>> siblings = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            siblings.add(new CountingCommandModule(new AtomicInteger(), "flapping", "sub" + i));
+        }
+
+        dispatcher.register(stable);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final List<Future<Integer>> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                readers.add(executor.submit(() -> {
+                    int dispatched = 0;
+                    ready.countDown();
+                    while (running.get()) {
+                        dispatcher.dispatch(new Object(), "stable");
+                        dispatched++;
+                        try {
+                            dispatcher.dispatch(new Object(), "flapping");
+                        } catch (final NoSuchCommandException ignored) {
+                            // The command is not registered at the moment
+                        }
+
+                        try {
+                            dispatcher.dispatch(new Object(), "flapping sub7");
+                        } catch (final NoSuchCommandException | CommandSyntaxException ignored) {
+                            // Either no command is registered, or "flapping" is registered without children
+                        }
+
+                        dispatcher.complete(new Object(), "fl");
+                    }
+
+                    return dispatched;
+                }));
+            }
+
+            assertTrue(ready.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < registrations; i++) {
+                if (i % 2 == 0) {
+                    dispatcher.register(flapping);
+                    dispatcher.unregister(flapping);
+                } else {
+                    dispatcher.register(siblings);
+                    dispatcher.unregister(siblings);
+                }
+            }
+        } finally {
+            running.set(false);
+            executor.shutdown();
+        }
+
+        int dispatched = 0;
+        // Future#get rethrows any unexpected exception thrown by the readers
+        for (final Future<Integer> reader : readers) dispatched += reader.get(30, TimeUnit.SECONDS);
+
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(dispatched, executions.get());
+        assertThrows(NoSuchCommandException.class, () -> dispatcher.dispatch(new Object(), "flapping"));
+        assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "stable"));
+    }
+
     @Test
     public void dispatch_contextInjectorCalled() {
         final AtomicBoolean state = new AtomicBoolean(false);
@@ -389,6 +522,742 @@ public class CommandDispatcherTests {
         assertThrows(FlagGroupException.class, () -> dispatcher.dispatch(new Object(), "test -hc #ffffff"));
     }
 
+    @Test
+    public void dispatch_indexedInput() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .indexInput()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CommandModule<Object> command = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .arguments()
+                .then(factory.required(Key.named(String.class, "arg")).mapWith(word()).build())
+                .flags()
+                .then(factory.boolFlag("hello").assumeShorthand().build())
+                .then(factory.valueFlag("color", String.class).assumeShorthand().mapWith(new ColorArgumentMapper()).build())
+                .build());
+
+        dispatcher.register(command);
+        assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "  test   value  -h   --color #ffffff  "));
+        assertThrows(FlagGroupException.class, () -> dispatcher.dispatch(new Object(), "test value -hc #ffffff"));
+        assertThrows(UnrecognizedFlagException.class, () -> dispatcher.dispatch(new Object(), "test value other"));
+    }
+
+    @Test
+    public void dispatch_reuseDispatchFrames() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .reuseDispatchFrames()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final Key<String> key = Key.named(String.class, "arg");
+        final List<String> values = new ArrayList<>();
+        final CommandModule<Object> inner = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("inner").build())
+                .arguments()
+                .then(factory.required(key).mapWith(word()).build())
+                .build());
+        // Dispatches another command, while its own dispatch is still in progress
+        final CommandModule<Object> outer = new CommandModule<>() {
+            @Override
+            public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+                return factory.newChain()
+                        .then(factory.literal("outer").build())
+                        .arguments()
+                        .then(factory.required(key).mapWith(word()).build())
+                        .build();
+            }
+
+            @Override
+            public void execute(final CommandContext<Object> context) {
+                assertDoesNotThrow(() -> dispatcher.dispatch(context.source(), "inner nested"));
+                values.add(context.require(key));
+            }
+        };
+
+        dispatcher.register(List.of(inner, outer));
+        dispatcher.subscribe((ExecutionListener.Post<Object>) result -> values.add(result.context().require(key)));
+        assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "outer first"));
+        assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "inner second"));
+        assertThrows(CommandSyntaxException.class, () -> dispatcher.dispatch(new Object(), "inner"));
+        assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "inner third"));
+        assertIterableEquals(List.of("nested", "first", "first", "second", "third"), values);
+        assertContainsAll(completions("inner", "inn"), dispatcher.complete(new Object(), "inn"));
+    }
+
+    @Test
+    public void dispatch_stacklessExceptions() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .stacklessExceptions()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CommandModule<Object> command = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .flags()
+                .then(factory.boolFlag("hello").assumeShorthand().build())
+                .build());
+
+        dispatcher.register(command);
+        final UnrecognizedFlagException ex = assertThrows(UnrecognizedFlagException.class, () -> dispatcher.dispatch(new Object(), "test --world"));
+        assertEquals(0, ex.getStackTrace().length);
+        assertDoesNotThrow(() -> dispatcher.complete(new Object(), "test --world "));
+        // The mode is only enabled for the duration of the dispatch
+        assertTrue(new CommandException().getStackTrace().length > 0);
+    }
+
+    @Test
+    public void dispatch_stacklessNoSuchCommand() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .stacklessExceptions()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CommandModule<Object> command = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .build());
+
+        dispatcher.register(command);
+        final NoSuchCommandException dispatchEx = assertThrows(NoSuchCommandException.class, () -> dispatcher.dispatch(new Object(), "nope"));
+        assertEquals(0, dispatchEx.getStackTrace().length);
+        final NoSuchCommandException parseEx = assertThrows(NoSuchCommandException.class, () -> dispatcher.parse(new Object(), "nope"));
+        assertEquals(0, parseEx.getStackTrace().length);
+        final ExecutionException asyncEx = assertThrows(ExecutionException.class, () -> dispatcher.dispatchAsync(new Object(), "nope").get());
+        final NoSuchCommandException cause = assertInstanceOf(NoSuchCommandException.class, asyncEx.getCause());
+        assertEquals(0, cause.getStackTrace().length);
+    }
+
+    @Test
+    public void dispatch_stackTracesByDefault() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CommandModule<Object> command = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .build());
+
+        dispatcher.register(command);
+        final UnrecognizedFlagException ex = assertThrows(UnrecognizedFlagException.class, () -> dispatcher.dispatch(new Object(), "test --world"));
+        assertTrue(ex.getStackTrace().length > 0);
+    }
+
+    @Test
+    public void dispatch_unrecognizedFlagSuggestions() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CommandModule<Object> command = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .flags()
+                .then(factory.boolFlag("color").assumeShorthand().build())
+                .then(factory.boolFlag("colour").build())
+                .then(factory.boolFlag("verbose").build())
+                .build());
+
+        dispatcher.register(command);
+        final UnrecognizedFlagException ex = assertThrows(UnrecognizedFlagException.class, () -> dispatcher.dispatch(new Object(), "test --colr"));
+        assertEquals(List.of("--color", "--colour"), ex.suggestions(2, 3));
+        assertEquals(List.of("--color"), ex.suggestions(1, 3));
+        // Unknown shorthands have nothing to suggest
+        final UnrecognizedFlagException shorthand = assertThrows(UnrecognizedFlagException.class, () -> dispatcher.dispatch(new Object(), "test -x"));
+        assertEquals(List.of(), shorthand.suggestions(2, 3));
+    }
+
+    @Test
+    public void tryDispatch_outcomes() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final Key<String> key = Key.named(String.class, "arg");
+        final CommandModule<Object> command = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .arguments()
+                .then(factory.required(key).mapWith(new TestArgumentMapper("hello")).build())
+                .flags()
+                .then(factory.boolFlag("fail").expect(fail()).build())
+                .build());
+        final CommandModule<Object> failing = new CommandModule<>() {
+            @Override
+            public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+                return factory.newChain()
+                        .then(factory.literal("failing").build())
+                        .build();
+            }
+
+            @Override
+            public void execute(final CommandContext<Object> context) {
+                throw new IllegalStateException();
+            }
+        };
+
+        dispatcher.register(List.of(command, failing));
+        assertInstanceOf(DispatchOutcome.Success.class, dispatcher.tryDispatch(new Object(), "test hello"));
+        assertInstanceOf(DispatchOutcome.SyntaxError.class, dispatcher.tryDispatch(new Object(), "test"));
+        assertInstanceOf(DispatchOutcome.SyntaxError.class, dispatcher.tryDispatch(new Object(), "test hello --unknown"));
+        assertInstanceOf(DispatchOutcome.MappingError.class, dispatcher.tryDispatch(new Object(), "test world"));
+        assertInstanceOf(DispatchOutcome.UnfulfilledCondition.class, dispatcher.tryDispatch(new Object(), "test hello --fail"));
+        assertInstanceOf(DispatchOutcome.ExecutionFailure.class, dispatcher.tryDispatch(new Object(), "failing"));
+
+        final DispatchOutcome<Object> outcome = dispatcher.tryDispatch(new Object(), "tset hello");
+        final DispatchOutcome.NoSuchCommand<?> noSuchCommand = assertInstanceOf(DispatchOutcome.NoSuchCommand.class, outcome);
+        assertEquals("tset", noSuchCommand.argument());
+        assertEquals(2, noSuchCommand.alternatives().size());
+        assertFalse(outcome.successful());
+    }
+
+    @Test
+    public void tryDispatch_cancelled() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CommandModule<Object> command = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .build());
+
+        dispatcher.register(command);
+        dispatcher.subscribe((ExecutionListener.Pre<Object>) context -> false);
+        assertInstanceOf(DispatchOutcome.Cancelled.class, dispatcher.tryDispatch(new Object(), "test"));
+        assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "test"));
+    }
+
+    @Test
+    public void dispatchAsync_executor() throws Exception {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .executor(tasks::add)
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final Key<String> key = Key.named(String.class, "arg");
+        final List<String> events = new ArrayList<>();
+        final CommandModule<Object> command = new CommandModule<>() {
+            @Override
+            public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+                return factory.newChain()
+                        .then(factory.literal("test").build())
+                        .arguments()
+                        .then(factory.required(key).mapWith(word()).build())
+                        .build();
+            }
+
+            @Override
+            public void execute(final CommandContext<Object> context) {
+                events.add("execute " + context.require(key));
+            }
+        };
+
+        dispatcher.register(command);
+        dispatcher.subscribe((ExecutionListener.Pre<Object>) context -> events.add("pre"));
+        dispatcher.subscribe((ExecutionListener.Post<Object>) result -> events.add("post"));
+
+        final CompletableFuture<ExecutionResult<Object>> future = dispatcher.dispatchAsync(new Object(), "test hello");
+        // Nothing is executed until the executor runs the task
+        assertFalse(future.isDone());
+        assertTrue(events.isEmpty());
+        assertEquals(1, tasks.size());
+
+        tasks.remove().run();
+        assertTrue(future.get().successful());
+        assertIterableEquals(List.of("pre", "execute hello", "post"), events);
+
+        // Rejected commands are never passed to the executor
+        final CompletableFuture<ExecutionResult<Object>> rejected = dispatcher.dispatchAsync(new Object(), "test");
+        assertTrue(rejected.isCompletedExceptionally());
+        final ExecutionException ex = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(CommandSyntaxException.class, ex.getCause());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void tryDispatch_timedOut() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .timeout(Duration.ofMinutes(1))
+                .timeouts(chain -> chain.literalAt(0).name().equals("slow") ? Duration.ZERO : null)
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final AtomicInteger executions = new AtomicInteger();
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("slow").build())
+                .build()));
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("fast").build())
+                .build()));
+        dispatcher.subscribe((ExecutionListener.Post<Object>) result -> executions.incrementAndGet());
+
+        // The deadline of "slow" has passed by the time the command is parsed
+        final DispatchOutcome<Object> outcome = dispatcher.tryDispatch(new Object(), "slow");
+        assertInstanceOf(DispatchOutcome.TimedOut.class, outcome);
+        assertThrows(CommandTimeoutException.class, () -> dispatcher.dispatch(new Object(), "slow"));
+        assertEquals(0, executions.get());
+
+        // The global timeout applies to "fast"
+        assertTrue(dispatcher.tryDispatch(new Object(), "fast").successful());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void dispatchAsync_watchdogCancelled() throws Exception {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .timeout(Duration.ofHours(1))
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .build()));
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(dispatcher.dispatchAsync(new Object(), "test").get(5, TimeUnit.SECONDS).successful());
+        }
+
+        // Watchdogs of executions that have finished in time are discarded
+        assertEquals(0, CommandDispatcherImpl.WATCHDOG.getQueue().size());
+    }
+
+    @Test
+    public void dispatchAsync_nullLaneKey() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .orderPerSource(source -> null)
+                .timeout(Duration.ofHours(1))
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .build()));
+
+        assertThrows(NullPointerException.class, () -> dispatcher.dispatchAsync(new Object(), "test"));
+        // Nothing has been scheduled for the rejected execution
+        assertEquals(0, CommandDispatcherImpl.WATCHDOG.getQueue().size());
+    }
+
+    @Test
+    public void dispatchAsync_timeout() throws Exception {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .timeout(Duration.ofMillis(50))
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean expired = new AtomicBoolean();
+        final CommandModule<Object> command = new CommandModule<>() {
+            @Override
+            public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+                return factory.newChain()
+                        .then(factory.literal("test").build())
+                        .build();
+            }
+
+            @Override
+            public void execute(final CommandContext<Object> context) {
+                try {
+                    release.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                expired.set(context.deadline().expired());
+                finished.countDown();
+            }
+        };
+
+        final List<ExecutionResult<Object>> results = new CopyOnWriteArrayList<>();
+        final CountDownLatch notified = new CountDownLatch(1);
+        dispatcher.register(command);
+        dispatcher.subscribe((ExecutionListener.Post<Object>) result -> {
+            results.add(result);
+            notified.countDown();
+        });
+
+        final CompletableFuture<ExecutionResult<Object>> future = dispatcher.dispatchAsync(new Object(), "test");
+        final ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CommandTimeoutException.class, ex.getCause());
+        // Listeners are told about the timeout while the command is still running
+        assertTrue(notified.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        // The command can tell it's been timed out
+        assertTrue(expired.get());
+        // Post execution listeners are invoked exactly once, with the timeout
+        assertEquals(1, results.size());
+        assertInstanceOf(CommandTimeoutException.class, results.getFirst().asFailed().exception());
+    }
+
+    @Test
+    public void dispatchAsync_stuckCommand() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .timeout(Duration.ofMillis(50))
+                .executor(executor)
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CountDownLatch never = new CountDownLatch(1);
+        final CommandModule<Object> command = new CommandModule<>() {
+            @Override
+            public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+                return factory.newChain()
+                        .then(factory.literal("test").build())
+                        .build();
+            }
+
+            @Override
+            public void execute(final CommandContext<Object> context) {
+                // Ignores both the deadline and interrupts
+                while (never.getCount() > 0L) {
+                    try {
+                        never.await();
+                    } catch (final InterruptedException ignored) {}
+                }
+            }
+        };
+
+        final List<ExecutionResult<Object>> results = new CopyOnWriteArrayList<>();
+        final CompletableFuture<ExecutionResult<Object>> notified = new CompletableFuture<>();
+        dispatcher.register(command);
+        dispatcher.subscribe((ExecutionListener.Post<Object>) result -> {
+            results.add(result);
+            notified.complete(result);
+        });
+
+        try {
+            final CompletableFuture<ExecutionResult<Object>> future = dispatcher.dispatchAsync(new Object(), "test");
+            final ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(CommandTimeoutException.class, ex.getCause());
+            // The command never returns, listeners are told about the timeout regardless
+            final ExecutionResult<Object> result = notified.get(5, TimeUnit.SECONDS);
+            assertInstanceOf(CommandTimeoutException.class, result.asFailed().exception());
+        } finally {
+            never.countDown();
+            executor.shutdown();
+        }
+
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        // The command returning late doesn't notify listeners again
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void dispatch_abbreviations() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .matchAbbreviations()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final List<String> executed = new ArrayList<>();
+        dispatcher.subscribe((ExecutionListener.Post<Object>) result -> executed.add(result.context().chain().route().getFirst().name()));
+        dispatcher.register(List.of(
+                TestCommandModule.of(factory -> factory.newChain().then(factory.literal("register").build()).build()),
+                TestCommandModule.of(factory -> factory.newChain().then(factory.literal("remove").build()).build())
+        ));
+
+        assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "reg"));
+        assertDoesNotThrow(() -> dispatcher.dispatch(new Object(), "REM"));
+        assertIterableEquals(List.of("register", "remove"), executed);
+
+        final NoSuchCommandException ex = assertThrows(NoSuchCommandException.class, () -> dispatcher.dispatch(new Object(), "re"));
+        assertEquals(Set.of("register", "remove"), ex.alternatives().stream().map(CommandNode::name).collect(Collectors.toSet()));
+
+        assertTrue(dispatcher.isCommand(" regi whatever"));
+        assertFalse(dispatcher.isCommand("re"));
+        assertFalse(dispatcher.isCommand(""));
+        assertFalse(CommandDispatcher.using(DispatcherConfig.builder().build()).isCommand("reg"));
+    }
+
+    @Test
+    public void isCommand_followsRegistrations() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final CommandModule<Object> first = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").aliases("ts").build())
+                .then(factory.literal("hello").build())
+                .build());
+        final CommandModule<Object> second = TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").aliases("tst").build())
+                .then(factory.literal("world").build())
+                .build());
+
+        assertFalse(dispatcher.isCommand("test hello"));
+        dispatcher.register(List.of(first, second));
+        assertTrue(dispatcher.isCommand("test hello"));
+        assertTrue(dispatcher.isCommand("TS"));
+        assertTrue(dispatcher.isCommand("tst world"));
+        // Only the first word is checked
+        assertTrue(dispatcher.isCommand("test whatever"));
+        assertFalse(dispatcher.isCommand("hello"));
+        assertFalse(dispatcher.isCommand("just chatting"));
+        assertFalse(dispatcher.isCommand(""));
+
+        dispatcher.unregister(second);
+        assertTrue(dispatcher.isCommand("ts hello"));
+        assertFalse(dispatcher.isCommand("hello"));
+        // Aliases merged into a shared node outlive the command that brought them
+        assertEquals(
+                assertDoesNotThrow(() -> dispatcher.tryDispatch(new Object(), "tst hello")).successful(),
+                dispatcher.isCommand("tst hello")
+        );
+
+        dispatcher.unregister(first);
+        assertFalse(dispatcher.isCommand("test hello"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExecutionOrder.class)
+    public void dispatchAll_outcomes(final ExecutionOrder order) {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final Key<String> key = Key.named(String.class, "arg");
+        final Queue<String> executed = new ConcurrentLinkedQueue<>();
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").aliases("ts").build())
+                .then(factory.literal("hello").build())
+                .arguments()
+                .then(factory.required(key).mapWith(word()).build())
+                .build()));
+        dispatcher.subscribe((ExecutionListener.Post<Object>) result -> executed.add(result.context().require(key)));
+
+        final List<String> commands = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            commands.add((i % 2 == 0 ? "test" : "ts") + " hello " + i);
+        }
+
+        commands.add("test world");
+        commands.add("test hello");
+        final List<DispatchOutcome<Object>> outcomes = dispatcher.dispatchAll(new Object(), commands, order);
+        assertEquals(commands.size(), outcomes.size());
+        for (int i = 0; i < 64; i++) {
+            final DispatchOutcome.Success<Object> success = assertInstanceOf(DispatchOutcome.Success.class, outcomes.get(i));
+            assertEquals(String.valueOf(i), success.context().require(key));
+        }
+
+        assertInstanceOf(DispatchOutcome.NoSuchCommand.class, outcomes.get(64));
+        assertInstanceOf(DispatchOutcome.SyntaxError.class, outcomes.get(65));
+        assertEquals(64, executed.size());
+        if (order == ExecutionOrder.ORDERED) {
+            // Ordered batches are executed in the order the commands have been provided in
+            assertIterableEquals(commands.subList(0, 64).stream().map(x -> x.substring(x.lastIndexOf(' ') + 1)).toList(), executed);
+        }
+    }
+
+    @Test
+    public void completeAll_matchesComplete() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .eagerFlagCompletions()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("testcommand").aliases("testcmd", "test", "ts").build())
+                .then(factory.literal("hello").aliases("hl").build())
+                .arguments()
+                .then(factory.required("stringarg", String.class).mapWith(word()).build())
+                .flags()
+                .then(factory.valueFlag("color", String.class).assumeShorthand().mapWith(new ColorArgumentMapper()).build())
+                .then(factory.boolFlag("boolflag").assumeShorthand().build())
+                .build()));
+
+        final List<String> commands = List.of(
+                "",
+                "te",
+                "test",
+                "test ",
+                "test hello",
+                "test hello ",
+                "test hello argname -",
+                "ts hl argname --color #",
+                "test hello argname -b -c #fff",
+                "test hello --c"
+        );
+
+        final List<List<CommandCompletion>> completions = dispatcher.completeAll(new Object(), commands);
+        assertEquals(commands.size(), completions.size());
+        for (int i = 0; i < commands.size(); i++) {
+            final List<CommandCompletion> expected = dispatcher.complete(new Object(), commands.get(i));
+            assertEquals(expected.size(), completions.get(i).size(), commands.get(i));
+            assertContainsAll(expected, completions.get(i));
+        }
+    }
+
+    @Test
+    public void parse_tree() throws CommandException {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final Key<String> nameKey = Key.named(String.class, "name");
+        final Key<String> colorKey = Key.named(String.class, "color");
+        final Key<Boolean> verboseKey = Key.named(Boolean.class, "verbose");
+        final AtomicInteger executions = new AtomicInteger();
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").aliases("ts").build())
+                .then(factory.literal("hello").build())
+                .arguments()
+                .then(factory.required(nameKey).mapWith(word()).build())
+                .flags()
+                .then(factory.valueFlag(colorKey).assumeShorthand().mapWith(new ColorArgumentMapper()).build())
+                .then(factory.boolFlag(verboseKey).assumeShorthand().build())
+                .build()));
+        dispatcher.subscribe((ExecutionListener.Pre<Object>) context -> executions.incrementAndGet() > 0);
+
+        final String input = "ts  hello --color #ffffff  argname -v";
+        final ParseTree<Object> tree = dispatcher.parse(new Object(), input);
+        assertEquals(input, tree.input());
+        assertIterableEquals(
+                List.of("ts", "hello", "--color #ffffff", "argname", "-v"),
+                tree.nodes().stream().map(x -> x.span().in(input)).toList()
+        );
+        assertEquals("ts", tree.nodes().getFirst().value());
+        assertEquals("argname", tree.value(nameKey).orElseThrow());
+        assertEquals("#ffffff", tree.value(colorKey).orElseThrow());
+        assertTrue(tree.value(verboseKey).orElseThrow());
+        // Nothing is ever executed
+        assertEquals(0, executions.get());
+
+        final ParseTree<Object> noFlags = dispatcher.parse(new Object(), "test hello argname");
+        assertEquals(3, noFlags.nodes().size());
+        assertTrue(noFlags.value(colorKey).isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "test", "test world", "test hello", "test hello a b", "test hello a --unknown" })
+    public void parse_rejected(final String input) {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .then(factory.literal("hello").build())
+                .arguments()
+                .then(factory.required("name", String.class).mapWith(word()).build())
+                .build()));
+
+        assertThrows(CommandException.class, () -> dispatcher.parse(new Object(), input));
+    }
+
+    @Test
+    public void parse_reuseDispatchFrames() throws Exception {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .reuseDispatchFrames()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final Key<String> key = Key.named(String.class, "name");
+        final Key<Boolean> verboseKey = Key.named(Boolean.class, "verbose");
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("long").build())
+                .arguments()
+                .then(factory.required(key).mapWith(word()).build())
+                .then(factory.required("other", String.class).mapWith(word()).build())
+                .flags()
+                .then(factory.boolFlag(verboseKey).assumeShorthand().build())
+                .build()));
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("short").build())
+                .arguments()
+                .then(factory.required(key).mapWith(word()).build())
+                .build()));
+
+        // Each call starts over with the state the previous one has left behind
+        final ParseTree<Object> first = dispatcher.parse(new Object(), "long a b -v");
+        assertThrows(NoSuchCommandException.class, () -> dispatcher.parse(new Object(), "unknown"));
+        final ParseTree<Object> second = dispatcher.parse(new Object(), "short c");
+        assertIterableEquals(List.of("long", "a", "b", "-v"), first.nodes().stream().map(x -> x.span().in(first.input())).toList());
+        assertIterableEquals(List.of("short", "c"), second.nodes().stream().map(x -> x.span().in(second.input())).toList());
+
+        // Ordered batches keep every parsed command until it's executed
+        final List<DispatchOutcome<Object>> outcomes = dispatcher.dispatchAll(new Object(), List.of("short d", "long e f", "short"), ExecutionOrder.ORDERED);
+        assertEquals("d", assertInstanceOf(DispatchOutcome.Success.class, outcomes.get(0)).context().require(key));
+        assertEquals("e", assertInstanceOf(DispatchOutcome.Success.class, outcomes.get(1)).context().require(key));
+        assertInstanceOf(DispatchOutcome.SyntaxError.class, outcomes.get(2));
+        assertEquals("g", dispatcher.dispatchAsync(new Object(), "short g").get(5, TimeUnit.SECONDS).context().require(key));
+    }
+
+    @Test
+    public void parse_parallel() {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final Key<String> key = Key.named(String.class, "name");
+        dispatcher.register(TestCommandModule.of(factory -> factory.newChain()
+                .then(factory.literal("test").build())
+                .arguments()
+                .then(factory.required(key).mapWith(word()).build())
+                .build()));
+
+        final List<String> names = IntStream.range(0, 1024).mapToObj(x -> "name" + x).toList();
+        final List<String> parsed = names.parallelStream()
+                .map(x -> assertDoesNotThrow(() -> dispatcher.parse(new Object(), "test " + x)))
+                .map(x -> x.value(key).orElseThrow())
+                .toList();
+        assertIterableEquals(names, parsed);
+    }
+
+    @Test
+    public void dispatchAsync_virtualThreads() throws Exception {
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final AtomicBoolean virtual = new AtomicBoolean();
+        final CommandModule<Object> command = new CommandModule<>() {
+            @Override
+            public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+                return factory.newChain()
+                        .then(factory.literal("test").build())
+                        .build();
+            }
+
+            @Override
+            public void execute(final CommandContext<Object> context) {
+                virtual.set(Thread.currentThread().isVirtual());
+            }
+        };
+
+        dispatcher.register(command);
+        assertTrue(dispatcher.dispatchAsync(new Object(), "test").get(10, TimeUnit.SECONDS).successful());
+        assertTrue(virtual.get());
+
+        dispatcher.subscribe((ExecutionListener.Pre<Object>) context -> false);
+        final CompletableFuture<ExecutionResult<Object>> cancelled = dispatcher.dispatchAsync(new Object(), "test");
+        assertThrows(CancellationException.class, () -> cancelled.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dispatchAsync_orderPerSource() throws Exception {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        final DispatcherConfig<Object> config = DispatcherConfig.builder()
+                .executor(tasks::add)
+                .orderPerSource(source -> source)
+                .build();
+        final CommandDispatcher<Object> dispatcher = CommandDispatcher.using(config);
+        final Key<String> key = Key.named(String.class, "arg");
+        final List<String> events = new ArrayList<>();
+        final CommandModule<Object> command = new CommandModule<>() {
+            @Override
+            public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+                return factory.newChain()
+                        .then(factory.literal("test").build())
+                        .arguments()
+                        .then(factory.required(key).mapWith(word()).build())
+                        .build();
+            }
+
+            @Override
+            public void execute(final CommandContext<Object> context) {
+                events.add(context.require(key));
+            }
+        };
+
+        dispatcher.register(command);
+        final Object first = new Object();
+        final Object second = new Object();
+        final CompletableFuture<ExecutionResult<Object>> a1 = dispatcher.dispatchAsync(first, "test a1");
+        final CompletableFuture<ExecutionResult<Object>> b1 = dispatcher.dispatchAsync(second, "test b1");
+        final CompletableFuture<ExecutionResult<Object>> a2 = dispatcher.dispatchAsync(first, "test a2");
+
+        // Commands of the same source share a single task
+        assertEquals(2, tasks.size());
+        tasks.remove().run();
+        assertIterableEquals(List.of("a1", "a2"), events);
+        assertTrue(a1.get().successful());
+        assertTrue(a2.get().successful());
+        assertFalse(b1.isDone());
+
+        tasks.remove().run();
+        assertTrue(b1.get().successful());
+        assertIterableEquals(List.of("a1", "a2", "b1"), events);
+    }
+
     @Test
     public void dispatch_tooMany_unrecognizedFlag() {
         final DispatcherConfig<Object> config = DispatcherConfig.builder()
@@ -554,4 +1423,27 @@ public class CommandDispatcherTests {
         final List<CommandCompletion> completions = dispatcher.complete(new Object(), input);
         assertIterableEquals(List.of(), completions);
     }
+
+    private static final class CountingCommandModule implements CommandModule<Object> {
+        private final AtomicInteger executions;
+        private final String[] route;
+
+        private CountingCommandModule(final AtomicInteger executions, final String... route) {
+            this.executions = executions;
+            this.route = route;
+        }
+
+        @Override
+        public CommandChain<Object> chain(final CommandChainFactory<Object> factory) {
+            CommandChain.LiteralBuilder<Object> builder = factory.newChain();
+            for (final String literal : this.route) builder = builder.then(factory.literal(literal).build());
+
+            return builder.build();
+        }
+
+        @Override
+        public void execute(final CommandContext<Object> context) {
+            this.executions.incrementAndGet();
+        }
+    }
 }
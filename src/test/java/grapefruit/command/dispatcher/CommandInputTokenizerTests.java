@@ -1,13 +1,17 @@
 package grapefruit.command.dispatcher;
 
+import grapefruit.command.argument.CommandArgumentException;
 import grapefruit.command.dispatcher.input.CommandInputTokenizer;
 import grapefruit.command.dispatcher.input.MissingInputException;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import static java.lang.String.join;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -159,6 +163,37 @@ public class CommandInputTokenizerTests {
         assertDoesNotThrow(() -> assertEquals(last, input.lastConsumed().orElseThrow()));
     }
 
+    @Test
+    public void readWordView_words() {
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap("  hello world");
+        assertDoesNotThrow(() -> {
+            final CharSequence first = input.readWordView();
+            assertEquals("hello", first.toString());
+            assertEquals('e', first.charAt(1));
+            assertEquals("ll", first.subSequence(2, 4).toString());
+            assertEquals("hello", input.lastConsumed().orElseThrow());
+            assertEquals("world", input.readWordView().toString());
+        });
+        assertThrows(MissingInputException.class, input::readWordView);
+    }
+
+    @Test
+    public void lastConsumed_quoted() {
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap("  \"hello world\" value");
+        assertDoesNotThrow(() -> assertEquals("hello world", input.readQuotable()));
+        assertEquals("\"hello world\"", input.lastConsumed().orElseThrow());
+        assertEquals(" value", input.remaining());
+    }
+
+    @Test
+    public void lastConsumed_trailingWhitespace() {
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap("hello   ");
+        assertDoesNotThrow(input::readWord);
+        assertThrows(MissingInputException.class, input::readWord);
+        assertEquals("   ", input.lastConsumed().orElseThrow());
+        assertFalse(input.canRead());
+    }
+
     @Test
     public void canReadNonWhitespace_canRead() {
         final String arg = " hello ";
@@ -172,4 +207,89 @@ public class CommandInputTokenizerTests {
         final CommandInputTokenizer input = CommandInputTokenizer.wrap(arg);
         assertFalse(input.canReadNonWhitespace());
     }
+
+    @Test
+    @Timeout(10)
+    public void canReadNonWhitespace_largeInput() {
+        // Half a million single-character words, followed by trailing whitespace
+        final String arg = "a ".repeat(1 << 19) + "   ";
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap(arg);
+        int words = 0;
+        while (input.canReadNonWhitespace()) {
+            assertDoesNotThrow(input::readWord);
+            words++;
+        }
+
+        assertEquals(1 << 19, words);
+        assertTrue(input.canRead());
+    }
+
+    @Test
+    public void internal_reset() {
+        for (final CommandInputTokenizer input : List.of(CommandInputTokenizer.wrap("hello world"), CommandInputTokenizer.indexed("hello world"))) {
+            assertDoesNotThrow(input::readWord);
+            input.internal().reset("  other ");
+            assertEquals("  other ", input.input());
+            assertEquals(0, input.cursor());
+            assertTrue(input.lastConsumed().isEmpty());
+            assertDoesNotThrow(() -> assertEquals("other", input.readWord()));
+            assertFalse(input.canReadNonWhitespace());
+        }
+    }
+
+    @Test
+    public void internal_gen() {
+        final CommandInputTokenizer input = CommandInputTokenizer.wrap("test --flag value");
+        assertDoesNotThrow(input::readWord);
+        assertDoesNotThrow(input::readWord);
+        final CommandArgumentException ex = input.internal().gen("--flag", CommandArgumentException::new);
+        assertEquals("test --flag value", ex.input());
+        assertEquals(11, ex.cursor());
+        assertEquals("test --flag", ex.consumed());
+        assertEquals("--flag", ex.argument());
+        assertEquals(" value", ex.remaining());
+    }
+
+    @Test
+    public void indexed_sameAsWrapped() {
+        // Each input is paired with the operations to perform on it, see trace
+        final String[][] cases = {
+                { "hello world", "wwww" },
+                { "  hello   world  ", "pwpwpw" },
+                { "'hello world' value", "qwq" },
+                { "\"hello", "qw" },
+                { "-abc --flag 12", "rrwwrw" },
+                { "a b c d e f", "wpwpwRw" },
+                { "   ", "wqR" },
+                { "hello 'a b' c", "rwqww" }
+        };
+
+        for (final String[] x : cases) {
+            assertEquals(trace(CommandInputTokenizer.wrap(x[0]), x[1]), trace(CommandInputTokenizer.indexed(x[0]), x[1]));
+        }
+    }
+
+    // Performs the provided operations, and records the result and state after each one
+    private static List<String> trace(final CommandInputTokenizer input, final String operations) {
+        final List<String> result = new ArrayList<>();
+        for (final char operation : operations.toCharArray()) {
+            try {
+                final Object value = switch (operation) {
+                    case 'w' -> input.readWord();
+                    case 'p' -> input.peekWord();
+                    case 'q' -> input.readQuotable();
+                    case 'r' -> input.read();
+                    case 'R' -> input.readRemaining();
+                    default -> throw new IllegalArgumentException(String.valueOf(operation));
+                };
+                result.add(String.valueOf(value));
+            } catch (final MissingInputException ex) {
+                result.add("missing");
+            }
+
+            result.add(input.cursor() + " " + input.canReadNonWhitespace() + " " + input.lastConsumed());
+        }
+
+        return result;
+    }
 }
@@ -0,0 +1,171 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.argument.CommandArgument;
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
+import grapefruit.command.util.key.Key;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.word;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommandParseResultTests {
+    private final CommandChainFactory<Object> factory = CommandChain.factory();
+    private final CommandChain<Object> chain = this.factory.newChain()
+            .then(this.factory.literal("test").build())
+            .arguments()
+            .then(this.factory.required(Key.named(String.class, "first")).mapWith(word()).build())
+            .then(this.factory.required(Key.named(String.class, "second")).mapWith(word()).build())
+            .flags()
+            .then(this.factory.boolFlag("hello").build())
+            .then(this.factory.boolFlag("world").build())
+            .build();
+
+    @Test
+    public void build_nothingConsumed() {
+        final CommandParseResult<Object> result = CommandParseResult.createBuilder(this.chain).build();
+        assertEquals(this.chain.arguments(), result.remainingArguments());
+        assertEquals(this.chain.flags(), result.remainingFlags());
+        assertTrue(result.lastArgument().isEmpty());
+        assertFalse(result.isComplete());
+    }
+
+    @Test
+    public void end_removesFromRemaining() {
+        final CommandParseResult.Builder<Object> builder = CommandParseResult.createBuilder(this.chain);
+        final CommandArgument.Required<Object, ?> first = this.chain.arguments().get(0);
+        final CommandArgument.Flag<Object, ?> world = this.chain.flags().get(1);
+        builder.begin(first);
+        builder.end();
+        builder.begin(world);
+        builder.end();
+
+        final CommandParseResult<Object> result = builder.build();
+        assertEquals(List.of(this.chain.arguments().get(1)), result.remainingArguments());
+        assertEquals(List.of(this.chain.flags().get(0)), result.remainingFlags());
+        assertThrows(IndexOutOfBoundsException.class, () -> result.remainingFlags().get(1));
+        assertThrows(UnsupportedOperationException.class, () -> result.remainingArguments().clear());
+    }
+
+    @Test
+    public void remaining_indexedAccess() {
+        final CommandChain.ArgumentBuilder<Object> builder = this.factory.newChain()
+                .then(this.factory.literal("test").build())
+                .arguments();
+        for (int i = 0; i < 150; i++) {
+            builder.then(this.factory.required(Key.named(String.class, "arg" + i)).mapWith(word()).build());
+        }
+
+        final CommandChain<Object> chain = builder.build();
+        final CommandParseResult.Builder<Object> resultBuilder = CommandParseResult.createBuilder(chain);
+        final List<CommandArgument.Required<Object, ?>> expected = new ArrayList<>();
+        for (int i = 0; i < chain.arguments().size(); i++) {
+            final CommandArgument.Required<Object, ?> argument = chain.arguments().get(i);
+            if (i % 3 == 0) {
+                resultBuilder.begin(argument);
+                resultBuilder.end();
+            } else {
+                expected.add(argument);
+            }
+        }
+
+        final List<CommandArgument.Required<Object, ?>> remaining = resultBuilder.build().remainingArguments();
+        assertEquals(expected.size(), remaining.size());
+        for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i), remaining.get(i));
+        assertThrows(IndexOutOfBoundsException.class, () -> remaining.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> remaining.get(expected.size()));
+    }
+
+    @Test
+    public void span_byPosition() {
+        final CommandParseResultImpl.Builder<Object> builder = new CommandParseResultImpl.Builder<>(this.chain.arguments(), this.chain.flags());
+        builder.span(1, 5, 10);
+        builder.span(3, 11, 18);
+        // Arguments that aren't part of the chain are ignored
+        builder.span(-1, 0, 4);
+
+        final CommandParseResultImpl<Object> result = builder.build();
+        assertEquals(-1, result.spanStart(0));
+        assertEquals(5, result.spanStart(1));
+        assertEquals(10, result.spanEnd(1));
+        assertEquals(-1, result.spanEnd(2));
+        assertEquals(11, result.spanStart(3));
+        assertEquals(18, result.spanEnd(3));
+    }
+
+    @Test
+    public void reset_startsOver() {
+        final CommandParseResultImpl.Builder<Object> builder = new CommandParseResultImpl.Builder<>(this.chain.arguments(), this.chain.flags());
+        builder.begin(this.chain.arguments().get(0));
+        builder.span(0, 5, 10);
+        builder.end();
+        builder.begin(this.chain.flags().get(1));
+        final CommandParseResultImpl<Object> before = builder.build();
+
+        final CommandChain<Object> shorter = this.factory.newChain()
+                .then(this.factory.literal("other").build())
+                .arguments()
+                .then(this.factory.required(Key.named(String.class, "only")).mapWith(word()).build())
+                .build();
+        builder.reset(shorter.arguments(), shorter.flags());
+        final CommandParseResultImpl<Object> after = builder.view();
+        assertEquals(shorter.arguments(), after.remainingArguments());
+        assertTrue(after.remainingFlags().isEmpty());
+        assertTrue(after.lastArgument().isEmpty());
+        assertEquals(-1, after.spanStart(0));
+        // Results built before the reset are unaffected
+        assertEquals(List.of(this.chain.arguments().get(1)), before.remainingArguments());
+        assertEquals(5, before.spanStart(0));
+        assertEquals(this.chain.flags().get(1), before.lastArgument().orElseThrow());
+    }
+
+    @Test
+    public void begin_withoutEnd() {
+        final CommandParseResult.Builder<Object> builder = CommandParseResult.createBuilder(this.chain);
+        final CommandArgument.Required<Object, ?> second = this.chain.arguments().get(1);
+        builder.begin(second);
+
+        final CommandParseResult<Object> result = builder.build();
+        assertEquals(second, result.lastArgument().orElseThrow());
+        assertEquals(this.chain.arguments(), result.remainingArguments());
+    }
+
+    @Test
+    public void isComplete_everythingConsumed() {
+        final CommandParseResult.Builder<Object> builder = CommandParseResult.createBuilder(this.chain);
+        for (final CommandArgument.Required<Object, ?> argument : this.chain.arguments()) {
+            builder.begin(argument);
+            builder.end();
+        }
+
+        for (final CommandArgument.Flag<Object, ?> flag : this.chain.flags()) {
+            builder.begin(flag);
+            builder.end();
+        }
+
+        final CommandParseResult<Object> result = builder.build();
+        assertTrue(result.remainingArguments().isEmpty());
+        assertTrue(result.remainingFlags().isEmpty());
+        assertTrue(result.isComplete());
+    }
+
+    @Test
+    public void bitMask_nextClear() {
+        final long[] mask = BitMask.create(130);
+        for (int i = 0; i < 130; i++) {
+            if (i != 64 && i != 129) BitMask.set(mask, i);
+        }
+
+        assertEquals(64, BitMask.nextClear(mask, 0, 130));
+        assertEquals(129, BitMask.nextClear(mask, 65, 130));
+        assertEquals(-1, BitMask.nextClear(mask, 65, 129));
+        assertEquals(-1, BitMask.nextClear(mask, 3, 3));
+        assertEquals(2, BitMask.countClear(mask, 0, 130));
+    }
+}
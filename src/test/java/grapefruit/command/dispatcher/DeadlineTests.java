@@ -0,0 +1,45 @@
+package grapefruit.command.dispatcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeadlineTests {
+
+    @Test
+    public void none_neverExpires() {
+        final Deadline deadline = Deadline.none();
+        assertFalse(deadline.expired());
+        assertDoesNotThrow(deadline::throwIfExpired);
+
+        deadline.cancel();
+        assertTrue(deadline.expired());
+        assertEquals(Duration.ZERO, deadline.remaining());
+        assertThrows(CommandTimeoutException.class, deadline::throwIfExpired);
+    }
+
+    @Test
+    public void after_expires() {
+        final Deadline passed = Deadline.after(Duration.ZERO);
+        assertTrue(passed.expired());
+        assertEquals(Duration.ZERO, passed.remaining());
+
+        final Deadline pending = Deadline.after(Duration.ofMinutes(1));
+        assertFalse(pending.expired());
+        assertTrue(pending.remaining().compareTo(Duration.ZERO) > 0);
+
+        pending.cancel();
+        assertTrue(pending.expired());
+    }
+
+    @Test
+    public void after_negativeTimeout() {
+        assertThrows(IllegalArgumentException.class, () -> Deadline.after(Duration.ofSeconds(-1)));
+    }
+}
@@ -0,0 +1,80 @@
+package grapefruit.command.dispatcher;
+
+import grapefruit.command.argument.CommandChain;
+import grapefruit.command.argument.CommandChainFactory;
+import grapefruit.command.argument.condition.CommandCondition;
+import grapefruit.command.mock.AlwaysCondition;
+import grapefruit.command.util.key.Key;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static grapefruit.command.argument.mapper.builtin.StringArgumentMapper.word;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DispatchPlanTests {
+    private final CommandChainFactory<Object> factory = CommandChain.factory();
+
+    @Test
+    public void compile_conditionsInOrder() {
+        final CommandCondition<Object> first = AlwaysCondition.pass();
+        final CommandCondition<Object> second = AlwaysCondition.pass();
+        final CommandCondition<Object> third = AlwaysCondition.pass();
+        final CommandChain<Object> chain = this.factory.newChain()
+                .then(this.factory.literal("test").expect(first).build())
+                .then(this.factory.literal("foo").build())
+                .then(this.factory.literal("bar").expect(second).build())
+                .arguments()
+                .then(this.factory.required(Key.named(String.class, "arg")).expect(third).mapWith(word()).build())
+                .flags()
+                .then(this.factory.boolFlag("hello").expect(AlwaysCondition.fail()).build())
+                .build();
+
+        final DispatchPlan<Object> plan = DispatchPlan.compile(chain);
+        // Flag conditions are tested separately, when the flag is consumed
+        assertArrayEquals(new CommandCondition<?>[] { first, second, third }, plan.conditions());
+        assertEquals(chain.arguments(), List.of(plan.arguments()));
+        assertEquals(chain.flags(), List.of(plan.flags()));
+    }
+
+    @Test
+    public void compile_flagLookups() {
+        final CommandChain<Object> chain = this.factory.newChain()
+                .then(this.factory.literal("test").build())
+                .flags()
+                .then(this.factory.boolFlag("hello").assumeShorthand().build())
+                .then(this.factory.boolFlag("world").build())
+                .then(this.factory.boolFlag("accent").shorthand('\u00e9').build())
+                .build();
+
+        final DispatchPlan<Object> plan = DispatchPlan.compile(chain);
+        assertEquals(0, plan.flagIndex('h'));
+        assertEquals(0, plan.flagIndex("--hello"));
+        assertEquals(1, plan.flagIndex("--world"));
+        assertEquals(2, plan.flagIndex('\u00e9'));
+        assertEquals(-1, plan.flagIndex('w'));
+        assertEquals(-1, plan.flagIndex('\u00e8'));
+        assertEquals(-1, plan.flagIndex("hello"));
+        assertEquals(-1, plan.flagIndex("--unknown"));
+    }
+
+    @Test
+    public void compile_packedSlots() {
+        final CommandChain<Object> chain = this.factory.newChain()
+                .then(this.factory.literal("test").build())
+                .arguments()
+                .then(this.factory.required(Key.named(String.class, "first")).mapWith(word()).build())
+                .then(this.factory.required(Key.named(String.class, "second")).mapWith(word()).build())
+                .flags()
+                .then(this.factory.boolFlag("hello").build())
+                .build();
+
+        final DispatchPlan<Object> plan = DispatchPlan.compile(chain);
+        assertTrue(plan.packed());
+        assertEquals(0, plan.argumentSlot(0));
+        assertEquals(1, plan.argumentSlot(1));
+        assertEquals(2, plan.flagSlot(0));
+    }
+}
@@ -0,0 +1,146 @@
+package grapefruit.command.dispatcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExecutionLanesTests {
+
+    @Test
+    public void execute_fifoPerKey() {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        final ExecutionLanes lanes = new ExecutionLanes(tasks::add);
+        final List<String> events = new ArrayList<>();
+        lanes.execute("a", () -> events.add("a1"));
+        lanes.execute("b", () -> events.add("b1"));
+        lanes.execute("a", () -> events.add("a2"));
+        lanes.execute("a", () -> events.add("a3"));
+
+        // One task per lane is handed to the executor
+        assertEquals(2, tasks.size());
+        assertEquals(2, lanes.size());
+
+        tasks.remove().run();
+        assertIterableEquals(List.of("a1", "a2", "a3"), events);
+        tasks.remove().run();
+        assertIterableEquals(List.of("a1", "a2", "a3", "b1"), events);
+        // Idle lanes are reclaimed
+        assertEquals(0, lanes.size());
+
+        lanes.execute("a", () -> events.add("a4"));
+        assertEquals(1, tasks.size());
+        tasks.remove().run();
+        assertEquals("a4", events.getLast());
+        assertEquals(0, lanes.size());
+    }
+
+    @Test
+    public void execute_failingTask() {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        final ExecutionLanes lanes = new ExecutionLanes(tasks::add);
+        final List<String> events = new ArrayList<>();
+        lanes.execute("a", () -> {
+            throw new IllegalStateException();
+        });
+        lanes.execute("a", () -> events.add("a2"));
+
+        tasks.remove().run();
+        assertIterableEquals(List.of("a2"), events);
+        assertEquals(0, lanes.size());
+    }
+
+    @Test
+    public void execute_busyLaneTakesTurns() {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        final ExecutionLanes lanes = new ExecutionLanes(tasks::add);
+        final List<String> events = new ArrayList<>();
+        for (int i = 0; i < ExecutionLanes.BATCH_SIZE + 2; i++) {
+            final String event = "a" + i;
+            lanes.execute("a", () -> events.add(event));
+        }
+        lanes.execute("b", () -> events.add("b0"));
+
+        // The first batch of the busy lane runs, then the lane is queued again, behind the other lane
+        tasks.remove().run();
+        assertEquals(ExecutionLanes.BATCH_SIZE, events.size());
+        assertEquals(2, tasks.size());
+        tasks.remove().run();
+        assertEquals("b0", events.getLast());
+        tasks.remove().run();
+        assertEquals(ExecutionLanes.BATCH_SIZE + 3, events.size());
+        assertEquals("a" + (ExecutionLanes.BATCH_SIZE + 1), events.getLast());
+        assertEquals(0, lanes.size());
+    }
+
+    @Test
+    public void execute_resubmissionRejected() {
+        final Queue<Runnable> tasks = new ArrayDeque<>();
+        final AtomicBoolean accepting = new AtomicBoolean(true);
+        final ExecutionLanes lanes = new ExecutionLanes(task -> {
+            if (!accepting.get()) throw new RejectedExecutionException();
+
+            tasks.add(task);
+        });
+        final List<String> events = new ArrayList<>();
+        for (int i = 0; i < ExecutionLanes.BATCH_SIZE * 2; i++) {
+            final String event = "a" + i;
+            lanes.execute("a", () -> events.add(event));
+        }
+
+        // The lane can't be queued again, so it's finished on the same thread
+        accepting.set(false);
+        tasks.remove().run();
+        assertEquals(ExecutionLanes.BATCH_SIZE * 2, events.size());
+        assertTrue(tasks.isEmpty());
+        assertEquals(0, lanes.size());
+    }
+
+    @Test
+    @Timeout(30)
+    public void execute_concurrent() throws InterruptedException {
+        final int keys = 64;
+        final int tasksPerKey = 200;
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            final ExecutionLanes lanes = new ExecutionLanes(pool);
+            final Map<Integer, List<Integer>> seen = new ConcurrentHashMap<>();
+            final CountDownLatch done = new CountDownLatch(keys * tasksPerKey);
+            for (int i = 0; i < tasksPerKey; i++) {
+                for (int key = 0; key < keys; key++) {
+                    final int k = key;
+                    final int value = i;
+                    // Tasks of the same key never run concurrently, so a plain list is enough
+                    lanes.execute(k, () -> {
+                        seen.computeIfAbsent(k, x -> new ArrayList<>()).add(value);
+                        done.countDown();
+                    });
+                }
+            }
+
+            assertTrue(done.await(20, TimeUnit.SECONDS));
+            for (int key = 0; key < keys; key++) {
+                final List<Integer> values = seen.get(key);
+                assertEquals(tasksPerKey, values.size());
+                for (int i = 0; i < tasksPerKey; i++) assertEquals(i, values.get(i).intValue());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
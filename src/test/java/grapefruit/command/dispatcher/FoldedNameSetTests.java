@@ -0,0 +1,64 @@
+package grapefruit.command.dispatcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FoldedNameSetTests {
+
+    @Test
+    public void empty_containsNothing() {
+        final FoldedNameSet set = FoldedNameSet.of(List.of());
+        assertEquals(0, set.size());
+        assertFalse(set.containsFirstWord("test"));
+        assertFalse(set.containsFirstWord(""));
+    }
+
+    @Test
+    public void of_foldsDuplicates() {
+        final FoldedNameSet set = FoldedNameSet.of(List.of("test", "TEST", "Test", "hello"));
+        assertEquals(2, set.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "test", "TEST", "tEsT hello", "  test", "\ttest\targ", "ts", "ÄRGER", "ärger x" })
+    public void containsFirstWord_matches(final String input) {
+        final FoldedNameSet set = FoldedNameSet.of(Set.of("test", "ts", "Ärger"));
+        assertTrue(set.containsFirstWord(input));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "   ", "tes", "tests", "t", "hello test", "te st", "tsx" })
+    public void containsFirstWord_noMatch(final String input) {
+        final FoldedNameSet set = FoldedNameSet.of(Set.of("test", "ts", "Ärger"));
+        assertFalse(set.containsFirstWord(input));
+    }
+
+    @Test
+    public void contains_region() {
+        final FoldedNameSet set = FoldedNameSet.of(Set.of("hello"));
+        assertTrue(set.contains("say HELLO world", 4, 9));
+        assertFalse(set.contains("say HELLO world", 4, 8));
+        assertThrows(IndexOutOfBoundsException.class, () -> set.contains("hello", 2, 6));
+    }
+
+    @Test
+    public void of_manyNames() {
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) names.add("command" + i);
+
+        final FoldedNameSet set = FoldedNameSet.of(names);
+        assertEquals(1000, set.size());
+        for (final String name : names) assertTrue(set.containsFirstWord(name.toUpperCase()));
+        assertFalse(set.containsFirstWord("command1000"));
+    }
+}
@@ -5,14 +5,27 @@ import grapefruit.command.argument.CommandChain;
 import grapefruit.command.argument.CommandChainFactory;
 import grapefruit.command.completion.CommandCompletion;
 import grapefruit.command.completion.CompletionFactory;
+import grapefruit.command.dispatcher.DispatchOutcome;
 import grapefruit.command.dispatcher.input.CommandInputTokenizer;
 import grapefruit.command.mock.EmptyCommandChain;
 import grapefruit.command.mock.TestCommandModule;
+import grapefruit.command.tree.node.CommandNode;
+import grapefruit.command.util.Tuple2;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CommandGraphTests {
     
@@ -49,6 +62,28 @@ public class CommandGraphTests {
 
     }
 
+    @Test
+    public void rootNames_firstLiterals() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandModule<Object> module0 = TestCommandModule.of(f -> f.newChain()
+                .then(f.literal("test").aliases("ts").build())
+                .then(f.literal("hello").build())
+                .build());
+        final CommandModule<Object> module1 = TestCommandModule.of(f -> f.newChain()
+                .then(f.literal("other").build())
+                .build());
+
+        assertTrue(graph.rootNames().isEmpty());
+        final CommandChain<Object> chain0 = module0.chain(factory);
+        graph.insert(chain0, module0);
+        graph.insert(module1.chain(factory), module1);
+        assertEquals(Set.of("test", "ts", "other"), Set.copyOf(graph.rootNames()));
+
+        graph.delete(chain0);
+        assertIterableEquals(List.of("other"), graph.rootNames());
+    }
+
     @Test
     public void insert_success() {
         final CommandGraph<Object> graph = graph();
@@ -146,6 +181,196 @@ public class CommandGraphTests {
         assertThrows(NoSuchCommandException.class, () -> graph.query(CommandInputTokenizer.wrap("test")));
     }
 
+    @Test
+    public void lookup_noSuchCommand() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> chain = factory.newChain()
+                .then(factory.literal("test").build())
+                .then(factory.literal("other").build()).build();
+
+        final CommandModule<Object> command = TestCommandModule.computed(chain);
+        graph.insert(chain, command);
+        assertEquals(command, graph.lookup(CommandInputTokenizer.wrap("test other")).left().orElseThrow());
+
+        final Tuple2<CommandModule<Object>, DispatchOutcome.NoSuchCommand<Object>> unknown = graph.lookup(CommandInputTokenizer.wrap("test next arg"));
+        assertTrue(unknown.left().isEmpty());
+        assertEquals("next", unknown.right().orElseThrow().argument());
+        assertEquals(" arg", unknown.right().orElseThrow().remaining());
+
+        // The input ends before reaching a command
+        final Tuple2<CommandModule<Object>, DispatchOutcome.NoSuchCommand<Object>> partial = graph.lookup(CommandInputTokenizer.wrap("test"));
+        assertEquals("", partial.right().orElseThrow().argument());
+        assertEquals(1, partial.right().orElseThrow().alternatives().size());
+    }
+
+    @Test
+    public void copy_sharesUntouchedNodes() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final List<CommandChain<Object>> chains = new ArrayList<>();
+        for (final String route : List.of("a one", "b two", "a three", "a four")) {
+            final String[] names = route.split(" ");
+            chains.add(factory.newChain()
+                    .then(factory.literal(names[0]).build())
+                    .then(factory.literal(names[1]).build())
+                    .build());
+        }
+
+        graph.insert(chains.get(0), TestCommandModule.computed(chains.get(0)));
+        graph.insert(chains.get(1), TestCommandModule.computed(chains.get(1)));
+        final Set<CommandNode> alternatives = graph.lookup(CommandInputTokenizer.wrap("b unknown")).right().orElseThrow().alternatives();
+
+        final CommandGraph<Object> copy = graph.copy();
+        copy.insert(chains.get(2), TestCommandModule.computed(chains.get(2)));
+        // The untouched subtree is shared, along with its cached views
+        assertSame(alternatives, copy.lookup(CommandInputTokenizer.wrap("b unknown")).right().orElseThrow().alternatives());
+        assertTrue(copy.lookup(CommandInputTokenizer.wrap("a three")).left().isPresent());
+        assertTrue(graph.lookup(CommandInputTokenizer.wrap("a three")).right().isPresent());
+
+        // Modifying the original doesn't affect the copy either
+        graph.delete(chains.get(1));
+        graph.insert(chains.get(3), TestCommandModule.computed(chains.get(3)));
+        assertTrue(copy.lookup(CommandInputTokenizer.wrap("b two")).left().isPresent());
+        assertTrue(copy.lookup(CommandInputTokenizer.wrap("a four")).right().isPresent());
+        assertEquals(List.of("a"), graph.rootNames());
+        assertEquals(Set.of("a", "b"), Set.copyOf(copy.rootNames()));
+    }
+
+    @Test
+    public void delete_sharedAlias() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> chain0 = factory.newChain()
+                .then(factory.literal("first").aliases("x").build())
+                .then(factory.literal("a").build())
+                .build();
+        final CommandChain<Object> chain1 = factory.newChain()
+                .then(factory.literal("second").build())
+                .then(factory.literal("b").build())
+                .build();
+        // Merges the alias into the existing node, where it's shadowed by the first one
+        final CommandChain<Object> chain2 = factory.newChain()
+                .then(factory.literal("second").aliases("X").build())
+                .then(factory.literal("c").build())
+                .build();
+        final CommandModule<Object> module0 = TestCommandModule.computed(chain0);
+        final CommandModule<Object> module1 = TestCommandModule.computed(chain1);
+
+        graph.insert(chain0, module0);
+        graph.insert(chain1, module1);
+        graph.insert(chain2, TestCommandModule.computed(chain2));
+        // The alias is resolved to the child that declared it first
+        assertSame(module0, graph.lookup(CommandInputTokenizer.wrap("x a")).left().orElseThrow());
+
+        graph.delete(chain0);
+        assertSame(module1, graph.lookup(CommandInputTokenizer.wrap("x b")).left().orElseThrow());
+        assertEquals(Set.of("second", "X"), Set.copyOf(graph.complete(CommandInputTokenizer.wrap("")).left().orElseThrow()));
+    }
+
+    @Test
+    public void lookup_sharedAlternatives() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> chain0 = factory.newChain()
+                .then(factory.literal("test").build())
+                .then(factory.literal("other").build()).build();
+        final CommandChain<Object> chain1 = factory.newChain()
+                .then(factory.literal("test").aliases("ts").build())
+                .then(factory.literal("next").build()).build();
+
+        graph.insert(chain0, TestCommandModule.computed(chain0));
+        final Set<CommandNode> first = graph.lookup(CommandInputTokenizer.wrap("unknown")).right().orElseThrow().alternatives();
+        final Set<CommandNode> second = graph.lookup(CommandInputTokenizer.wrap("missing")).right().orElseThrow().alternatives();
+        // Nothing has changed, the same view is shared
+        assertSame(first, second);
+        assertSame(first, graph.lookup(CommandInputTokenizer.wrap("unknown")).right().orElseThrow().toException().alternatives());
+        assertThrows(UnsupportedOperationException.class, first::clear);
+
+        // Merging aliases changes the child, thus the view of the root is recreated
+        graph.insert(chain1, TestCommandModule.computed(chain1));
+        final Set<CommandNode> merged = graph.lookup(CommandInputTokenizer.wrap("unknown")).right().orElseThrow().alternatives();
+        assertNotSame(first, merged);
+        assertEquals(Set.of("ts"), merged.iterator().next().aliases());
+
+        // Adding a child recreates the view of its parent
+        final Set<CommandNode> children = graph.lookup(CommandInputTokenizer.wrap("test unknown")).right().orElseThrow().alternatives();
+        assertEquals(Set.of("other", "next"), children.stream().map(CommandNode::name).collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void lookup_abbreviations() {
+        final CommandGraph<Object> graph = new CommandGraph<>(true);
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> remove = factory.newChain()
+                .then(factory.literal("remove").aliases("rm").build())
+                .build();
+        final CommandModule<Object> removeModule = TestCommandModule.computed(remove);
+        graph.insert(remove, removeModule);
+        final List<CommandModule<Object>> modules = new ArrayList<>();
+        for (final String name : List.of("register", "list", "listall")) {
+            final CommandChain<Object> chain = factory.newChain()
+                    .then(factory.literal("user").build())
+                    .then(factory.literal(name).build())
+                    .build();
+            final CommandModule<Object> module = TestCommandModule.computed(chain);
+            graph.insert(chain, module);
+            modules.add(module);
+        }
+
+        assertSame(removeModule, graph.lookup(CommandInputTokenizer.wrap("REMO")).left().orElseThrow());
+        assertSame(modules.get(0), graph.lookup(CommandInputTokenizer.wrap("us reg")).left().orElseThrow());
+        // Exact matches take precedence over abbreviations
+        assertSame(modules.get(1), graph.lookup(CommandInputTokenizer.wrap("user list")).left().orElseThrow());
+        assertSame(modules.get(2), graph.lookup(CommandInputTokenizer.wrap("user lista")).left().orElseThrow());
+        // The copy matches abbreviations as well
+        assertSame(removeModule, graph.copy().lookup(CommandInputTokenizer.wrap("rem")).left().orElseThrow());
+        assertTrue(graph.isRootAbbreviation("Us"));
+        assertFalse(graph.isRootAbbreviation("x"));
+
+        // Ambiguous prefixes are rejected, only the candidates are offered
+        final DispatchOutcome.NoSuchCommand<Object> ambiguous = graph.lookup(CommandInputTokenizer.wrap("user li")).right().orElseThrow();
+        assertEquals("li", ambiguous.argument());
+        assertEquals(Set.of("list", "listall"), ambiguous.alternatives().stream().map(CommandNode::name).collect(Collectors.toSet()));
+        // Suggestions are limited to the candidates as well
+        assertIterableEquals(List.of("list", "listall"), ambiguous.suggestions(10, 10).stream().map(CommandNode::name).toList());
+        assertIterableEquals(List.of("list", "listall"), ambiguous.toException().suggestions(10, 10).stream().map(CommandNode::name).toList());
+        final DispatchOutcome.NoSuchCommand<Object> unknown = graph.lookup(CommandInputTokenizer.wrap("user x")).right().orElseThrow();
+        assertEquals(Set.of("register", "list", "listall"), unknown.alternatives().stream().map(CommandNode::name).collect(Collectors.toSet()));
+
+        // Abbreviations aren't matched by default
+        final CommandGraph<Object> exact = graph();
+        exact.insert(remove, removeModule);
+        assertTrue(exact.lookup(CommandInputTokenizer.wrap("remo")).right().isPresent());
+        assertFalse(exact.isRootAbbreviation("remo"));
+    }
+
+    @Test
+    public void lookup_suggestions() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> teleport = factory.newChain()
+                .then(factory.literal("teleport").aliases("tp").build())
+                .build();
+        graph.insert(teleport, TestCommandModule.computed(teleport));
+        for (final String name : List.of("tell", "help", "hello")) {
+            final CommandChain<Object> chain = factory.newChain().then(factory.literal(name).build()).build();
+            graph.insert(chain, TestCommandModule.computed(chain));
+        }
+
+        final DispatchOutcome.NoSuchCommand<Object> outcome = graph.lookup(CommandInputTokenizer.wrap("TELEPROT")).right().orElseThrow();
+        assertIterableEquals(List.of("teleport"), outcome.suggestions(2, 3).stream().map(CommandNode::name).toList());
+        assertIterableEquals(List.of("hello", "help"), graph.lookup(CommandInputTokenizer.wrap("helo")).right().orElseThrow()
+                .toException().suggestions(1, 3).stream().map(CommandNode::name).toList());
+        // Aliases are indexed as well
+        assertIterableEquals(List.of("teleport"), graph.lookup(CommandInputTokenizer.wrap("tpp")).right().orElseThrow()
+                .suggestions(1, 3).stream().map(CommandNode::name).toList());
+
+        // Exceptions created without an index compute suggestions from the alternatives
+        final NoSuchCommandException plain = new NoSuchCommandException("", "tel", "", outcome.alternatives());
+        assertIterableEquals(List.of("tell"), plain.suggestions(1, 3).stream().map(CommandNode::name).toList());
+    }
+
     @Test
     public void delete_treeIntegrity() {
         final CommandGraph<Object> graph = graph();
@@ -210,4 +435,79 @@ public class CommandGraphTests {
         graph.insert(chain, command);
         assertDoesNotThrow(() -> assertEquals(command, graph.query(CommandInputTokenizer.wrap("test"))));
     }
+
+    @Test
+    public void query_caseInsensitive() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> chain = factory.newChain()
+                .then(factory.literal("test").aliases("alias").build()).build();
+        final CommandModule<Object> command = TestCommandModule.computed(chain);
+
+        graph.insert(chain, command);
+        assertDoesNotThrow(() -> assertEquals(command, graph.query(CommandInputTokenizer.wrap("TeSt"))));
+        assertDoesNotThrow(() -> assertEquals(command, graph.query(CommandInputTokenizer.wrap("ALIAS"))));
+    }
+
+    @Test
+    public void query_mergedAliases() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        final CommandChain<Object> chain1 = factory.newChain()
+                .then(factory.literal("test").build())
+                .then(factory.literal("other").build()).build();
+
+        final CommandChain<Object> chain2 = factory.newChain()
+                .then(factory.literal("test").aliases("alias").build())
+                .then(factory.literal("next").build()).build();
+
+        final CommandModule<Object> command1 = TestCommandModule.computed(chain1);
+        final CommandModule<Object> command2 = TestCommandModule.computed(chain2);
+
+        graph.insert(chain1, command1);
+        graph.insert(chain2, command2);
+
+        assertDoesNotThrow(() -> assertEquals(command1, graph.query(CommandInputTokenizer.wrap("alias other"))));
+        assertDoesNotThrow(() -> assertEquals(command2, graph.query(CommandInputTokenizer.wrap("alias next"))));
+
+        graph.delete(chain1);
+        graph.delete(chain2);
+        assertThrows(NoSuchCommandException.class, () -> graph.query(CommandInputTokenizer.wrap("alias next")));
+    }
+
+    @Test
+    public void query_largeFanOut() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        for (int i = 0; i < 10000; i++) {
+            final CommandChain<Object> chain = factory.newChain()
+                    .then(factory.literal("command" + i).aliases("alias" + i).build()).build();
+            graph.insert(chain, TestCommandModule.computed(chain));
+        }
+
+        final CommandChain<Object> chain = factory.newChain()
+                .then(factory.literal("test").build()).build();
+        final CommandModule<Object> command = TestCommandModule.computed(chain);
+        graph.insert(chain, command);
+
+        assertDoesNotThrow(() -> assertEquals(command, graph.query(CommandInputTokenizer.wrap("test"))));
+        assertDoesNotThrow(() -> graph.query(CommandInputTokenizer.wrap("ALIAS9999")));
+    }
+
+    @Test
+    public void complete_largeFanOut() {
+        final CommandGraph<Object> graph = graph();
+        final CommandChainFactory<Object> factory = CommandChain.factory();
+        for (int i = 0; i < 10000; i++) {
+            final CommandChain<Object> chain = factory.newChain()
+                    .then(factory.literal("command%05d".formatted(i)).aliases("Alias%05d".formatted(i)).build()).build();
+            graph.insert(chain, TestCommandModule.computed(chain));
+        }
+
+        final Tuple2<List<String>, CommandModule<Object>> result = graph.complete(CommandInputTokenizer.wrap("aLiAs0999"));
+        assertIterableEquals(
+                List.of("Alias09990", "Alias09991", "Alias09992", "Alias09993", "Alias09994", "Alias09995", "Alias09996", "Alias09997", "Alias09998", "Alias09999"),
+                result.left().orElseThrow()
+        );
+    }
 }
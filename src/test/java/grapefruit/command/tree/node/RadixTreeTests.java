@@ -0,0 +1,154 @@
+package grapefruit.command.tree.node;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RadixTreeTests {
+
+    private static RadixTree<String> tree(final String... keys) {
+        final RadixTree<String> tree = new RadixTree<>();
+        for (final String key : keys) tree.putIfAbsent(key, key);
+
+        return tree;
+    }
+
+    private static List<String> keys(final RadixTree<String> tree, final String prefix) {
+        final List<String> result = new ArrayList<>();
+        tree.forEachWithPrefix(prefix, (key, value) -> result.add(key));
+        return result;
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "'',comet|command|commit|t|team|test",
+            "c,comet|command|commit",
+            "com,comet|command|commit",
+            "comm,command|commit",
+            "commi,commit",
+            "commit,commit",
+            "commits,''",
+            "te,team|test",
+            "t,t|team|test",
+            "x,''"
+    })
+    public void forEachWithPrefix(final String prefix, final String expected) {
+        final RadixTree<String> tree = tree("command", "commit", "comet", "test", "team", "t");
+        final List<String> expectedKeys = expected.isEmpty() ? List.of() : Arrays.asList(expected.split("\\|"));
+        assertIterableEquals(expectedKeys, keys(tree, prefix));
+    }
+
+    @Test
+    public void putIfAbsent_existingKey() {
+        final RadixTree<String> tree = new RadixTree<>();
+        assertNull(tree.putIfAbsent("test", "a"));
+        assertEquals("a", tree.putIfAbsent("test", "b"));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    public void remove_differentValue() {
+        final RadixTree<String> tree = new RadixTree<>();
+        tree.putIfAbsent("test", "a");
+        assertFalse(tree.remove("test", "b"));
+        assertFalse(tree.remove("tes", "a"));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    public void remove_keepsRemainingKeys() {
+        final RadixTree<String> tree = tree("command", "commit", "comet", "test");
+        assertTrue(tree.remove("commit", "commit"));
+        assertIterableEquals(List.of("comet", "command"), keys(tree, "com"));
+
+        assertTrue(tree.remove("command", "command"));
+        assertIterableEquals(List.of("comet"), keys(tree, "c"));
+        assertIterableEquals(List.of("comet"), keys(tree, "come"));
+
+        assertTrue(tree.remove("comet", "comet"));
+        assertTrue(tree.remove("test", "test"));
+        assertTrue(tree.isEmpty());
+        assertIterableEquals(List.of(), keys(tree, ""));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "commi,commit",
+            "comma,command",
+            "come,comet",
+            "tea,team",
+            "t,''",
+            "te,''",
+            "com,''",
+            "commits,''",
+            "x,''"
+    })
+    public void uniqueWithPrefix(final String prefix, final String expected) {
+        final RadixTree<String> tree = tree("command", "commit", "comet", "test", "team", "t");
+        assertEquals(expected.isEmpty() ? null : expected, tree.uniqueWithPrefix(prefix));
+    }
+
+    @Test
+    public void uniqueWithPrefix_sharedValue() {
+        final RadixTree<String> tree = new RadixTree<>();
+        tree.putIfAbsent("remove", "remove");
+        tree.putIfAbsent("rem", "remove");
+        tree.putIfAbsent("register", "register");
+
+        // Both keys starting with "rem" are mapped to the same value
+        assertEquals("remove", tree.uniqueWithPrefix("rem"));
+        assertEquals("remove", tree.uniqueWithPrefix("remo"));
+        assertNull(tree.uniqueWithPrefix("re"));
+        assertTrue(tree.remove("register", "register"));
+        assertEquals("remove", tree.uniqueWithPrefix("r"));
+    }
+
+    @Test
+    public void copy_independentOfOriginal() {
+        final RadixTree<String> tree = tree("command", "commit", "test");
+        final RadixTree<String> copy = tree.copy();
+        assertTrue(copy.remove("commit", "commit"));
+        copy.putIfAbsent("comet", "comet");
+        tree.putIfAbsent("team", "team");
+
+        assertIterableEquals(List.of("command", "commit", "team", "test"), keys(tree, ""));
+        assertIterableEquals(List.of("comet", "command", "test"), keys(copy, ""));
+        assertEquals(3, copy.size());
+    }
+
+    @Test
+    public void copy_sharedNodesCopiedBeforeModification() {
+        final RadixTree<String> tree = tree("command", "commit", "test");
+        final RadixTree<String> copy = tree.copy();
+        final RadixTree<String> copyOfCopy = copy.copy();
+        // Splits and merges edges both trees still share
+        tree.putIfAbsent("comm", "comm");
+        assertTrue(copy.remove("command", "command"));
+        assertTrue(copyOfCopy.replace("commit", "commit", "c"));
+
+        assertIterableEquals(List.of("comm", "command", "commit", "test"), keys(tree, ""));
+        assertIterableEquals(List.of("commit", "test"), keys(copy, ""));
+        assertIterableEquals(List.of("command", "c", "test"), copyOfCopy.values());
+        assertEquals("commit", tree.get("commit"));
+        assertEquals("commit", copy.get("commit"));
+        assertNull(copy.get("comm"));
+    }
+
+    @Test
+    public void replace_differentValue() {
+        final RadixTree<String> tree = tree("command", "commit");
+        assertFalse(tree.replace("command", "commit", "c"));
+        assertFalse(tree.replace("comm", "command", "c"));
+        assertEquals("command", tree.get("command"));
+    }
+}
@@ -0,0 +1,110 @@
+package grapefruit.command.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BKTreeTests {
+
+    @ParameterizedTest
+    @CsvSource({
+            "'','',0",
+            "abc,'',3",
+            "kitten,sitting,3",
+            "flaw,lawn,2",
+            "help,hlep,2",
+            "teleport,teleport,0",
+            "tp,teleport,6"
+    })
+    public void distance_levenshtein(final String a, final String b, final int expected) {
+        assertEquals(expected, BKTree.distance(a, b));
+        assertEquals(expected, BKTree.distance(b, a));
+    }
+
+    @Test
+    public void putIfAbsent_keepsExisting() {
+        final BKTree<String> tree = BKTree.<String>builder()
+                .putIfAbsent("help", "first")
+                .putIfAbsent("help", "second")
+                .build();
+        assertEquals(1, tree.size());
+        assertIterableEquals(List.of("first"), tree.search("help", 0, 10));
+    }
+
+    @Test
+    public void build_resetsBuilder() {
+        final BKTree.Builder<String> builder = BKTree.builder();
+        final BKTree<String> first = builder.putIfAbsent("help", "help").build();
+        final BKTree<String> second = builder.putIfAbsent("kick", "kick").build();
+        // Trees aren't affected by further use of their builder
+        assertIterableEquals(List.of("help"), first.search("help", 4, 10));
+        assertIterableEquals(List.of("kick"), second.search("kick", 4, 10));
+        assertTrue(builder.build().isEmpty());
+    }
+
+    @Test
+    public void search_closestFirst() {
+        final BKTree.Builder<String> builder = BKTree.builder();
+        for (final String name : List.of("help", "hello", "helm", "teleport", "tell", "kick", "ban", "heal")) {
+            builder.putIfAbsent(name, name);
+        }
+
+        final BKTree<String> tree = builder.build();
+
+        assertIterableEquals(List.of("heal", "helm", "help"), tree.search("hel", 2, 3));
+        assertIterableEquals(List.of("heal", "helm", "help", "hello", "tell"), tree.search("hel", 2, 10));
+        assertIterableEquals(List.of("heal", "helm", "help"), tree.search("hel", 1, 10));
+        assertIterableEquals(List.of("teleport"), tree.search("telepotr", 2, 10));
+        assertTrue(tree.search("xyzzy", 2, 10).isEmpty());
+        assertTrue(tree.search("help", 2, 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> tree.search("help", -1, 1));
+    }
+
+    @Test
+    public void search_distinctValues() {
+        final BKTree<String> tree = BKTree.<String>builder()
+                .putIfAbsent("teleport", "teleport")
+                .putIfAbsent("tp", "teleport")
+                .putIfAbsent("tell", "tell")
+                .build();
+
+        assertIterableEquals(List.of("teleport", "tell"), tree.search("tpp", 3, 10));
+    }
+
+    @Test
+    public void search_matchesLinearScan() {
+        final Random random = new Random(42L);
+        final Set<String> keys = new HashSet<>();
+        final BKTree.Builder<String> builder = BKTree.builder();
+        for (int i = 0; i < 2000; i++) {
+            final StringBuilder key = new StringBuilder();
+            final int length = 3 + random.nextInt(6);
+            for (int j = 0; j < length; j++) key.append((char) ('a' + random.nextInt(6)));
+
+            keys.add(key.toString());
+            builder.putIfAbsent(key.toString(), key.toString());
+        }
+
+        final BKTree<String> tree = builder.build();
+        assertEquals(keys.size(), tree.size());
+
+        for (final String query : List.of("abc", "fedcba", "aaaa", "abcdefab")) {
+            final List<String> expected = keys.stream()
+                    .filter(x -> BKTree.distance(x, query) <= 2)
+                    .sorted(Comparator.comparingInt((String x) -> BKTree.distance(x, query)).thenComparing(Comparator.naturalOrder()))
+                    .toList();
+            assertIterableEquals(expected, tree.search(query, 2, Integer.MAX_VALUE));
+        }
+    }
+}
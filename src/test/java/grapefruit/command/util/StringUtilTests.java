@@ -7,7 +7,9 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class StringUtilTests {
@@ -91,4 +93,31 @@ public class StringUtilTests {
     public void containsWhitespace_doesNotContain(final String arg) {
         assertFalse(StringUtil.containsWhitespace(arg));
     }
+
+    @ParameterizedTest
+    @CsvSource({
+            "hello,HELLO",
+            "WoRld,world",
+            "TEsT,tEst"
+    })
+    public void fold_equalsIgnoreCase(final String arg, final String other) {
+        assertEquals(StringUtil.fold(arg), StringUtil.fold(other));
+    }
+
+    @Test
+    public void fold_alreadyFolded() {
+        final String arg = "hello";
+        assertSame(arg, StringUtil.fold(arg));
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "hello,HELLO,true",
+            "WoRld,world,true",
+            "hello,hell,false",
+            "hello,world,false"
+    })
+    public void equalsIgnoreCase_charSequence(final String arg, final String other, final boolean expected) {
+        assertEquals(expected, StringUtil.equalsIgnoreCase(arg, new StringBuilder(other)));
+    }
 }